@@ -46,8 +46,6 @@ public class MDC {
 
     /** {@link PaxContext} used when {@link org.ops4j.pax.logging.PaxLoggingService} is not available */
     private static PaxContext m_defaultContext = new PaxContext();
-    /** {@link PaxContext} obtained from {@link org.ops4j.pax.logging.PaxLoggingService} */
-    private static PaxContext m_context;
 
     private MDC() {
     }
@@ -56,23 +54,18 @@ public class MDC {
      * <p>For all the methods that use the context, default, static, {@link PaxContext} may be used (tied to pax-logging-api
      * bundle) if there's no available {@link PaxLoggingManager} or {@link PaxLoggingService}. If the service is
      * available, it is <strong>always</strong> used to get service specific {@link PaxContext}.</p>
-     * <p>Refering <strong>always</strong> to {@link PaxLoggingService#getPaxContext()} is cheap operation, as it's
-     * only reference to fields.</p>
+     * <p>{@link PaxLoggingManager#getPaxContext()} only reads a volatile field, so there's no locking
+     * for MDC operations.</p>
      *
      * <p>See: https://ops4j1.jira.com/browse/PAXLOGGING-247</p>
      *
-     * @return m_context if the MDC should use the PaxContext object from the PaxLoggingManager,
+     * @return the PaxContext of current service if the MDC should use the PaxContext object from the PaxLoggingManager,
      *      or m_defaultContext if the logging manager is not set, or does not have its context available yet.
      */
     private static PaxContext getPaxContext() {
         PaxLoggingManager manager = Logger.m_paxLogging;
-        if (manager != null) {
-            synchronized (MDC.class) {
-                PaxLoggingService service = manager.getPaxLoggingService();
-                m_context = service != null ? service.getPaxContext() : null;
-            }
-        }
-        return m_context != null ? m_context : m_defaultContext;
+        PaxContext context = manager != null ? manager.getPaxContext() : null;
+        return context != null ? context : m_defaultContext;
     }
 
     /**
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Global counter of logging configuration changes. {@link org.ops4j.pax.logging.internal.TrackingLogger}
+ * caches effective level of its delegate together with the epoch for which it was calculated and the cached
+ * value is used as long as the epoch doesn't change.</p>
+ *
+ * <p>{@link PaxLoggingService} implementations have to call {@link #next(boolean)} after each (re)configuration
+ * of the backend and after any change of logger levels. This class is in exported package, because
+ * {@code org.ops4j.pax.logging.spi.support} is private-packaged by the backends.</p>
+ *
+ * <p>Lowest bit of the epoch tells whether {@code isXXXEnabled()} methods depend only on logger levels. If
+ * backend configuration contains global filters (Log4J2 {@code Configuration.getFilter()}, Logback turbo filters),
+ * the result may depend on thread, MDC or marker and shouldn't be cached at all.</p>
+ */
+public final class ConfigurationEpoch {
+
+    private static final AtomicInteger EPOCH = new AtomicInteger(0);
+
+    private ConfigurationEpoch() {
+    }
+
+    /**
+     * Current (never negative) epoch
+     * @return
+     */
+    public static int current() {
+        return EPOCH.get();
+    }
+
+    /**
+     * Checks whether effective levels calculated in given epoch may be cached.
+     * @param epoch
+     * @return
+     */
+    public static boolean isLevelOnly(int epoch) {
+        return (epoch & 1) == 1;
+    }
+
+    /**
+     * Starts new epoch after backend (re)configuration or a change of logger levels.
+     * @param levelOnly whether {@code isXXXEnabled()} methods depend only on logger levels in new configuration
+     */
+    public static void next(boolean levelOnly) {
+        EPOCH.updateAndGet(epoch -> ((epoch + 2) & 0x7FFFFFFE) | (levelOnly ? 1 : 0));
+    }
+
+    /**
+     * Starts new epoch without changing the level-only flag. Used when loggers switch their delegates.
+     */
+    public static void next() {
+        EPOCH.updateAndGet(epoch -> ((epoch + 2) & 0x7FFFFFFE) | (epoch & 1));
+    }
+
+}
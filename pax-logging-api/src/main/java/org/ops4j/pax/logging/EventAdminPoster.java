@@ -42,6 +42,16 @@ public interface EventAdminPoster extends AutoCloseable {
     void postEvent(Bundle bundle, LogLevel level, LogEntry entry, String message,
                    Throwable exception, ServiceReference<?> sr, Map<String, ?> context);
 
+    /**
+     * Checks whether there may be any subscriber of events for given level. If not, callers don't have to
+     * prepare the event at all.
+     * @param level
+     * @return
+     */
+    default boolean hasSubscribers(LogLevel level) {
+        return true;
+    }
+
     /**
      * Stops the poster.
      */
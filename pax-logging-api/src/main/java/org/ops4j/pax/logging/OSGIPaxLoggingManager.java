@@ -17,8 +17,10 @@
  */
 package org.ops4j.pax.logging;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.ops4j.pax.logging.internal.TrackingLogger;
 import org.ops4j.pax.logging.spi.support.BundleHelper;
@@ -39,20 +41,24 @@ public class OSGIPaxLoggingManager
 
     private ServiceTracker<PaxLoggingService, PaxLoggingService> tracker;
 
-    private PaxLoggingService m_logService;
+    private volatile PaxLoggingService m_logService;
     private ServiceReference<PaxLoggingService> m_logServiceRef;
 
+    // PaxContext of m_logService, read by MDC implementations of all facades without locking
+    private volatile PaxContext m_paxContext;
+
     /**
-     * Mapping between logger name and {@link TrackingLogger}. This map is shared between all logging facades.
+     * Mapping between (fqcn, category, bundle id) and {@link TrackingLogger}. This map is shared between all
+     * logging facades. Lookups are lock-free.
      */
-    private final Map<String, TrackingLogger> m_loggers;
+    private final ConcurrentMap<LoggerKey, TrackingLogger> m_loggers;
 
     private BundleContext m_context;
 
     public OSGIPaxLoggingManager(BundleContext context) {
         tracker = new ServiceTracker<>(context, PaxLoggingService.class.getName(), this);
 
-        m_loggers = new HashMap<String, TrackingLogger>();
+        m_loggers = new ConcurrentHashMap<>();
         m_context = context;
 
         // only now tracker can be opened, because when pax-logging-api bundle is restarted while
@@ -64,6 +70,7 @@ public class OSGIPaxLoggingManager
         ServiceReference<PaxLoggingService> ref = tracker.getServiceReference();
         if (ref != null) {
             m_logService = context.getService(ref);
+            m_paxContext = m_logService != null ? m_logService.getPaxContext() : null;
         }
     }
 
@@ -79,15 +86,28 @@ public class OSGIPaxLoggingManager
             fqcn = PaxLogger.FQCN;
         }
 
-        String key = fqcn + "#" + category + "#" + (bundle != null ? Long.toString(bundle.getBundleId()) : "0");
-        synchronized (m_loggers) {
-            TrackingLogger logger = m_loggers.get(key);
-            if (logger == null) {
-                logger = new TrackingLogger(m_logService, category, bundle, fqcn);
-                m_loggers.put(key, logger);
-            }
+        LoggerKey key = new LoggerKey(fqcn, category, bundle != null ? bundle.getBundleId() : 0L);
+        TrackingLogger logger = m_loggers.get(key);
+        if (logger != null) {
+            return logger;
+        }
+
+        // new TrackingLogger is not created inside computeIfAbsent(), because it calls the backend, which may
+        // log on its own (and get back here). If there's a race, first logger put into the map wins.
+        PaxLoggingService service = m_logService;
+        TrackingLogger created = new TrackingLogger(service, category, bundle, fqcn);
+        logger = m_loggers.putIfAbsent(key, created);
+        if (logger != null) {
             return logger;
         }
+
+        // the service may have been changed after we've got it and before addingService()/removedService()
+        // could see new logger in the map
+        VarHandle.fullFence();
+        if (m_logService != service) {
+            track(created);
+        }
+        return created;
     }
 
     @Override
@@ -95,6 +115,11 @@ public class OSGIPaxLoggingManager
         return m_logService;
     }
 
+    @Override
+    public PaxContext getPaxContext() {
+        return m_paxContext;
+    }
+
     @Override
     public void close() {
         tracker.close();
@@ -112,12 +137,10 @@ public class OSGIPaxLoggingManager
         // we could always think about storing this map as static and the loggers would survice the restart
         // of pax-logging-api (though they'd naturally not survive refresh of pax-logging-api)
         // see https://ops4j1.jira.com/browse/PAXLOGGING-307
-        synchronized (m_loggers) {
-            for (TrackingLogger logger : m_loggers.values()) {
-                logger.removed();
-            }
-            m_loggers.clear();
+        for (TrackingLogger logger : m_loggers.values()) {
+            logger.removed();
         }
+        m_loggers.clear();
 
         m_context = null;
     }
@@ -130,14 +153,16 @@ public class OSGIPaxLoggingManager
     @Override
     public PaxLoggingService addingService(ServiceReference<PaxLoggingService> reference) {
         m_logServiceRef = reference;
-        m_logService = m_context.getService(m_logServiceRef);
-
-        synchronized (m_loggers) {
-            for (TrackingLogger logger : m_loggers.values()) {
-                logger.added(m_logService);
-            }
+        PaxLoggingService service = m_context.getService(m_logServiceRef);
+        m_logService = service;
+        m_paxContext = service != null ? service.getPaxContext() : null;
+
+        // see getLogger() - loggers created concurrently are either visible here or will see new service
+        VarHandle.fullFence();
+        for (TrackingLogger logger : m_loggers.values()) {
+            track(logger);
         }
-        return m_logService;
+        return service;
     }
 
     @Override
@@ -147,16 +172,69 @@ public class OSGIPaxLoggingManager
     @Override
     public void removedService(ServiceReference<PaxLoggingService> reference, PaxLoggingService service) {
         m_logService = null;
+        m_paxContext = null;
         if (m_logServiceRef != null) {
             m_context.ungetService(m_logServiceRef);
             m_logServiceRef = null;
         }
 
-        synchronized (m_loggers) {
-            for (TrackingLogger logger : m_loggers.values()) {
+        VarHandle.fullFence();
+        for (TrackingLogger logger : m_loggers.values()) {
+            track(logger);
+        }
+    }
+
+    /**
+     * Switches the delegate of {@link TrackingLogger} to currently available {@link PaxLoggingService} (or to
+     * fallback logger). Only this logger is locked, so concurrent lookups are not blocked. The service is read
+     * under the lock, so the last switch of given logger always uses the most recent service.
+     * @param logger
+     */
+    private void track(TrackingLogger logger) {
+        synchronized (logger) {
+            PaxLoggingService service = m_logService;
+            if (service != null) {
+                logger.added(service);
+            } else {
                 logger.removed();
             }
         }
     }
 
+    /**
+     * Composite key of {@link TrackingLogger} - there's no need to build String keys for each lookup.
+     */
+    private static final class LoggerKey {
+
+        private final String fqcn;
+        private final String category;
+        private final long bundleId;
+        private final int hash;
+
+        LoggerKey(String fqcn, String category, long bundleId) {
+            this.fqcn = fqcn;
+            this.category = category;
+            this.bundleId = bundleId;
+            this.hash = 31 * (31 * fqcn.hashCode() + Objects.hashCode(category)) + Long.hashCode(bundleId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LoggerKey)) {
+                return false;
+            }
+            LoggerKey other = (LoggerKey) o;
+            return bundleId == other.bundleId && hash == other.hash
+                    && fqcn.equals(other.fqcn) && Objects.equals(category, other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
 }
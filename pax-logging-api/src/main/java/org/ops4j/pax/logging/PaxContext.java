@@ -60,10 +60,11 @@ public class PaxContext {
     public void putAll(Map<String, Object> context) {
         Map<String, Object> ht = tlm.get();
         if (ht == null) {
-            ht = new HashMap<String, Object>(HT_SIZE);
+            ht = new ContextMap(HT_SIZE);
             tlm.set(ht);
         }
         ht.putAll(context);
+        modified(ht);
     }
 
     /**
@@ -74,10 +75,13 @@ public class PaxContext {
     public void put(String key, Object o) {
         Map<String, Object> ht = tlm.get();
         if (ht == null) {
-            ht = new HashMap<String, Object>(HT_SIZE);
+            ht = new ContextMap(HT_SIZE);
             tlm.set(ht);
         }
         ht.put(key, o);
+        if (!PaxLoggingConstants._LOG4J2_MESSAGE.equals(key)) {
+            modified(ht);
+        }
     }
 
     /**
@@ -102,6 +106,9 @@ public class PaxContext {
         Map<String, Object> ht = tlm.get();
         if (ht != null) {
             ht.remove(key);
+            if (!PaxLoggingConstants._LOG4J2_MESSAGE.equals(key)) {
+                modified(ht);
+            }
         }
     }
 
@@ -133,6 +140,7 @@ public class PaxContext {
         Map<String, Object> ht = tlm.get();
         if (ht != null) {
             ht.clear();
+            modified(ht);
         }
     }
 
@@ -144,12 +152,49 @@ public class PaxContext {
     public void setContextMap(Map<String, Object> contextMap) {
         Map<String, Object> ht = tlm.get();
         if (ht == null) {
-            ht = new HashMap<String, Object>(HT_SIZE);
+            ht = new ContextMap(HT_SIZE);
             tlm.set(ht);
         } else {
             ht.clear();
         }
         ht.putAll(contextMap);
+        modified(ht);
+    }
+
+    /**
+     * Returns a number that changes whenever this thread-bound MDC context is modified using methods of this
+     * class (changes of internal {@link PaxLoggingConstants#_LOG4J2_MESSAGE} key are not counted). Together with
+     * identity of {@link #getContext()} map, it allows backends to reuse data derived from the MDC until it changes.
+     * Modifications made directly to the map returned from {@link #getContext()} are not tracked.
+     * @return
+     */
+    public int getVersion() {
+        Map<String, Object> ht = tlm.get();
+        return ht instanceof ContextMap ? ((ContextMap) ht).version : 0;
+    }
+
+    private static void modified(Map<String, Object> ht) {
+        if (ht instanceof ContextMap) {
+            ((ContextMap) ht).version++;
+        }
+    }
+
+    /**
+     * Thread-bound map of MDC values with a modification counter.
+     */
+    static class ContextMap extends HashMap<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        int version;
+
+        ContextMap(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        ContextMap(Map<String, Object> map) {
+            super(map);
+        }
     }
 
     /**
@@ -161,7 +206,7 @@ public class PaxContext {
         @Override
         protected Map<String, Object> childValue(Map<String, Object> parentValue) {
             if (parentValue != null) {
-                return new HashMap<String, Object>(parentValue);
+                return new ContextMap(parentValue);
             } else {
                 return null;
             }
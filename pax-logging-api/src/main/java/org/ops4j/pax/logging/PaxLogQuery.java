@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+/**
+ * <p>Filter of {@link LogEntry log entries} used with {@link PaxLogReader#getLog(PaxLogQuery)}. All the
+ * criteria are optional and are combined with logical <em>and</em>:<pre>
+ * reader.getLog(PaxLogQuery.query().level(LogLevel.WARN).bundle(42L).limit(100));
+ * </pre></p>
+ */
+public final class PaxLogQuery {
+
+    private LogLevel m_level;
+    private long m_bundleId = -1L;
+    private String m_loggerPrefix;
+    private long m_from = Long.MIN_VALUE;
+    private long m_to = Long.MAX_VALUE;
+    private int m_limit = Integer.MAX_VALUE;
+
+    private PaxLogQuery() {
+    }
+
+    /**
+     * Creates a query matching all entries
+     * @return
+     */
+    public static PaxLogQuery query() {
+        return new PaxLogQuery();
+    }
+
+    /**
+     * Matches entries with given or more important level (e.g., {@link LogLevel#WARN} matches also
+     * {@link LogLevel#ERROR} and {@link LogLevel#AUDIT} entries)
+     * @param level
+     * @return
+     */
+    public PaxLogQuery level(LogLevel level) {
+        m_level = level;
+        return this;
+    }
+
+    /**
+     * Matches entries logged by bundle with given id
+     * @param bundleId
+     * @return
+     */
+    public PaxLogQuery bundle(long bundleId) {
+        m_bundleId = bundleId;
+        return this;
+    }
+
+    /**
+     * Matches entries with {@link LogEntry#getLoggerName()} starting with given prefix
+     * @param loggerPrefix
+     * @return
+     */
+    public PaxLogQuery loggerPrefix(String loggerPrefix) {
+        m_loggerPrefix = loggerPrefix;
+        return this;
+    }
+
+    /**
+     * Matches entries with {@link LogEntry#getTime()} not earlier than given time
+     * @param from
+     * @return
+     */
+    public PaxLogQuery from(long from) {
+        m_from = from;
+        return this;
+    }
+
+    /**
+     * Matches entries with {@link LogEntry#getTime()} not later than given time
+     * @param to
+     * @return
+     */
+    public PaxLogQuery to(long to) {
+        m_to = to;
+        return this;
+    }
+
+    /**
+     * Maximal number of returned entries
+     * @param limit
+     * @return
+     */
+    public PaxLogQuery limit(int limit) {
+        m_limit = limit;
+        return this;
+    }
+
+    public LogLevel getLevel() {
+        return m_level;
+    }
+
+    /**
+     * Bundle id or {@code -1} if entries of all bundles are matched
+     * @return
+     */
+    public long getBundleId() {
+        return m_bundleId;
+    }
+
+    public String getLoggerPrefix() {
+        return m_loggerPrefix;
+    }
+
+    public long getFrom() {
+        return m_from;
+    }
+
+    public long getTo() {
+        return m_to;
+    }
+
+    public int getLimit() {
+        return m_limit;
+    }
+
+    /**
+     * Checks whether given entry matches all criteria of this query
+     * @param entry
+     * @return
+     */
+    public boolean matches(LogEntry entry) {
+        if (m_level != null && (entry.getLogLevel() == null || !m_level.implies(entry.getLogLevel()))) {
+            return false;
+        }
+        if (m_bundleId >= 0L) {
+            Bundle bundle = entry.getBundle();
+            if (bundle == null || bundle.getBundleId() != m_bundleId) {
+                return false;
+            }
+        }
+        if (m_loggerPrefix != null && (entry.getLoggerName() == null || !entry.getLoggerName().startsWith(m_loggerPrefix))) {
+            return false;
+        }
+        long time = entry.getTime();
+        return time >= m_from && time <= m_to;
+    }
+
+}
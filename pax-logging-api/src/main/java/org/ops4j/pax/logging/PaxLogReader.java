@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogReaderService;
+
+/**
+ * <p>Extension of {@link LogReaderService} registered by pax-logging backends that allows incremental reads
+ * of the history. Instead of copying entire history with {@link LogReaderService#getLog()}, consumers (like
+ * tail commands) pass {@link LogEntry#getSequence()} of the last entry they've seen and get only newer entries.</p>
+ *
+ * <p>History may also be {@link #getLog(PaxLogQuery) queried} by level, bundle, logger name and time.</p>
+ *
+ * <p>Entries are returned in the order they were added to the history, oldest first. Sequence numbers are
+ * assigned to entries when they're added to the history, so this is also the order of their sequence numbers and
+ * a consumer passing sequence number of the last entry it got never misses an entry logged concurrently.</p>
+ */
+public interface PaxLogReader extends LogReaderService {
+
+    /**
+     * Returns at most {@code maxEntries} oldest entries from the history with sequence number greater than
+     * {@code sequence}. If the consumer is so late that newer entries were already removed from the history,
+     * oldest available entries are returned.
+     * @param sequence {@link LogEntry#getSequence()} of last entry seen by the consumer ({@code 0} for entire history)
+     * @param maxEntries
+     * @return entries newer than {@code sequence} - possibly empty list
+     */
+    List<LogEntry> getLogSince(long sequence, int maxEntries);
+
+    /**
+     * Like {@link #getLogSince(long, int)}, but if there are no newer entries yet, waits for them up
+     * to given time.
+     * @param sequence {@link LogEntry#getSequence()} of last entry seen by the consumer ({@code 0} for entire history)
+     * @param maxEntries
+     * @param timeout
+     * @param unit
+     * @return entries newer than {@code sequence} - empty list if nothing was logged within the timeout
+     * @throws InterruptedException
+     */
+    List<LogEntry> getLogSince(long sequence, int maxEntries, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns entries from the history matching given query, from the most recent one. Entries are found using
+     * indexes maintained when entries are added, so queries by level or bundle don't scan entire history.
+     * @param query
+     * @return
+     */
+    List<LogEntry> getLog(PaxLogQuery query);
+
+}
@@ -116,11 +116,72 @@ public interface PaxLoggingConstants {
      */
     String PID_CFG_LOG_READER_SIZE = "org.ops4j.pax.logging.logReaderServiceSize";
 
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify size of per-listener queue used to deliver entries
+     * to {@link org.osgi.service.log.LogListener}s asynchronously. When not set (or {@code 0}), listeners
+     * are called synchronously in logging thread.
+     */
+    String PID_CFG_LOG_READER_QUEUE_SIZE = "org.ops4j.pax.logging.logReaderServiceQueueSize";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify what happens when asynchronous
+     * {@link org.osgi.service.log.LogListener} can't keep up with logged entries. One of {@code drop-oldest}
+     * (default), {@code drop-newest} or {@code block}.
+     */
+    String PID_CFG_LOG_READER_OVERFLOW_POLICY = "org.ops4j.pax.logging.logReaderServiceOverflowPolicy";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify memory budget (estimated size in bytes of all entries)
+     * of {@link org.osgi.service.log.LogReaderService} history. When exceeded, oldest entries are removed.
+     * When not set (or {@code 0}), history is limited only by {@link #PID_CFG_LOG_READER_SIZE}.
+     */
+    String PID_CFG_LOG_READER_MAX_BYTES = "org.ops4j.pax.logging.logReaderServiceMaxBytes";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify whether exceptions of entries kept in
+     * {@link org.osgi.service.log.LogReaderService} history should be replaced with detached copies (only class
+     * name, message and stack trace), so the history doesn't retain original exception objects.
+     */
+    String PID_CFG_LOG_READER_COMPACT_EXCEPTIONS = "org.ops4j.pax.logging.logReaderServiceCompactExceptions";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify memory-mapped file where
+     * {@link org.osgi.service.log.LogReaderService} history is persisted, so it's available after restart
+     * (or crash) of the JVM. The file can be decoded offline using
+     * {@code java -cp pax-logging-api.jar org.ops4j.pax.logging.spi.support.LogHistoryFile <file>}.
+     */
+    String PID_CFG_LOG_READER_HISTORY_FILE = "org.ops4j.pax.logging.logReaderServiceHistoryFile";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify loggers for which source location
+     * ({@link org.osgi.service.log.LogEntry#getLocation()}) of entries passed to
+     * {@link org.osgi.service.log.LogReaderService} and Event Admin is captured. Comma-separated list of
+     * logger name prefixes, {@code bundle:<symbolic name>} items or {@code *} for all loggers. By default location
+     * is not captured.
+     */
+    String PID_CFG_LOG_EVENTS_LOCATION = "org.ops4j.pax.logging.logEventsLocation";
+
+    /**
+     * {@code org.osp4j.pax.logging} PID property to specify minimal level of events passed to
+     * {@link org.osgi.service.log.LogReaderService} (history and listeners) and to Event Admin, regardless of
+     * levels of loggers and appenders. Less important events don't even create
+     * {@link org.osgi.service.log.LogEntry}. {@code OFF} disables both, default is {@code TRACE} (all events).
+     */
+    String PID_CFG_LOG_EVENTS_LEVEL = "org.ops4j.pax.logging.logEventsLevel";
+
     /**
      * Service property to filter {@link org.ops4j.pax.logging.spi.PaxAppender} OSGi services
      */
     String SERVICE_PROPERTY_APPENDER_NAME_PROPERTY = "org.ops4j.pax.logging.appender.name";
 
+    /**
+     * Boolean service property of {@link org.ops4j.pax.logging.spi.PaxAppender} OSGi services declaring whether
+     * the appender needs {@link org.ops4j.pax.logging.spi.PaxLoggingEvent#getLocationInformation() location information}.
+     * Location is calculated in logging thread (which requires stack walking) only if at least one appender needs it.
+     * If not specified, {@link #LOGGING_CFG_APPENDER_LOCATION_DEFAULT} is used.
+     */
+    String SERVICE_PROPERTY_APPENDER_LOCATION_PROPERTY = "org.ops4j.pax.logging.appender.location";
+
     /**
      * Service property to filter {@link org.ops4j.pax.logging.spi.PaxLayout} OSGi services
      */
@@ -197,9 +258,18 @@ public interface PaxLoggingConstants {
      * there are special cases (see: https://ops4j1.jira.com/browse/PAXLOGGING-191) when reconfiguration may lead
      * to calling custom appender code, which start some threads that call yet another code which call log statements.
      * This option may be turned off (value: {@code false}) to disable locks.
+     * With {@link #USE_LOCKS_OPTIMISTIC} value, log operations only mark their own thread as logging (which doesn't
+     * write any state shared between logging threads and scales better with number of threads), while
+     * reconfiguration still waits for log operations that already started.
      */
     String PID_CFG_USE_LOCKS = "org.ops4j.pax.logging.useLocks";
 
+    /**
+     * Value of {@link #PID_CFG_USE_LOCKS} that selects per-thread read locks for log operations (no shared state
+     * written by logging threads) instead of {@link java.util.concurrent.locks.ReentrantReadWriteLock}.
+     */
+    String USE_LOCKS_OPTIMISTIC = "optimistic";
+
     /**
      * System or context property to configure locking just like {@link #PID_CFG_USE_LOCKS}.
      */
@@ -227,6 +297,13 @@ public interface PaxLoggingConstants {
      */
     String LOGGING_CFG_ENABLE_EVENT_ADMIN = "org.ops4j.pax.logging.eventAdminEnabled";
 
+    /**
+     * System or context property to specify how many log events may wait for delivery to available Event Admin
+     * service, before oldest events are dropped. Default is 10000. Without Event Admin, at most 50 events are
+     * kept until the service becomes available.
+     */
+    String LOGGING_CFG_EVENT_ADMIN_QUEUE_SIZE = "org.ops4j.pax.logging.eventAdminQueueSize";
+
     /**
      * System or context property to disable (because its enabled by default)
      * {@link org.osgi.service.log.LogReaderService} registration. If not specified, it is assumed that
@@ -235,4 +312,11 @@ public interface PaxLoggingConstants {
      */
     String LOGGING_CFG_ENABLE_LOG_READER_SERVICE = "org.ops4j.pax.logging.logReaderEnabled";
 
+    /**
+     * System or context property to specify whether {@link org.ops4j.pax.logging.spi.PaxAppender} services
+     * without {@link #SERVICE_PROPERTY_APPENDER_LOCATION_PROPERTY} need location information. If not specified,
+     * it is assumed that they do (for compatibility).
+     */
+    String LOGGING_CFG_APPENDER_LOCATION_DEFAULT = "org.ops4j.pax.logging.appenderLocationDefault";
+
 }
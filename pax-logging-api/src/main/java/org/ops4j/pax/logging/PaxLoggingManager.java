@@ -92,6 +92,17 @@ public interface PaxLoggingManager {
      */
     PaxLoggingService getPaxLoggingService();
 
+    /**
+     * Returns {@link PaxContext} of currently used {@link PaxLoggingService} or {@code null} if there's no
+     * service available. It is called for every MDC operation of every facade, so implementations should
+     * make it cheap.
+     * @return
+     */
+    default PaxContext getPaxContext() {
+        PaxLoggingService service = getPaxLoggingService();
+        return service != null ? service.getPaxContext() : null;
+    }
+
     /**
      * Closes {@link PaxLoggingService} service tracker in this manager.
      */
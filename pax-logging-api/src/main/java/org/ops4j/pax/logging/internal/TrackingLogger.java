@@ -17,6 +17,7 @@
  */
 package org.ops4j.pax.logging.internal;
 
+import org.ops4j.pax.logging.ConfigurationEpoch;
 import org.ops4j.pax.logging.PaxContext;
 import org.ops4j.pax.logging.PaxLogger;
 import org.ops4j.pax.logging.PaxLoggingService;
@@ -32,52 +33,68 @@ import org.osgi.service.log.LoggerConsumer;
  *
  * This class itself doesn't track {@link PaxLoggingService} - {@link org.ops4j.pax.logging.OSGIPaxLoggingManager}
  * does that and calls {@link #added(PaxLoggingService)} and {@link #removed()} methods.
+ *
+ * Effective level of the delegate is cached until {@link ConfigurationEpoch} changes, so checks for disabled
+ * levels (without markers) don't have to reach the backend.
  */
 public class TrackingLogger implements PaxLogger {
 
-    private PaxLoggingService m_service;
+    private static final int UNKNOWN = -1;
+
+    // delegate may be switched by OSGIPaxLoggingManager at any time, without locking the logging threads
+    private volatile PaxLoggingService m_service;
     private String m_category;
     private Bundle m_bundle;
-    private PaxLogger m_delegate;
+    private volatile PaxLogger m_delegate;
     private String m_fqcn;
 
+    // effective level of m_delegate together with ConfigurationEpoch for which it was calculated:
+    // (epoch << 32) | level. Initial value doesn't match any epoch
+    private volatile long m_levelCache = -1L;
+
     public TrackingLogger(PaxLoggingService service, String category, Bundle bundle, String fqcn) {
         m_fqcn = fqcn;
         m_category = category;
         m_bundle = bundle;
-        added(service);
+        switchDelegate(service);
     }
 
     // isXXXEnabled() from org.osgi.service.log.Logger and org.ops4j.pax.logging.PaxLogger
 
     @Override
     public boolean isTraceEnabled() {
-        return m_delegate.isTraceEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isTraceEnabled() : level <= LEVEL_TRACE;
     }
 
     @Override
     public boolean isDebugEnabled() {
-        return m_delegate.isDebugEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isDebugEnabled() : level <= LEVEL_DEBUG;
     }
 
     @Override
     public boolean isInfoEnabled() {
-        return m_delegate.isInfoEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isInfoEnabled() : level <= LEVEL_INFO;
     }
 
     @Override
     public boolean isWarnEnabled() {
-        return m_delegate.isWarnEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isWarnEnabled() : level <= LEVEL_WARNING;
     }
 
     @Override
     public boolean isErrorEnabled() {
-        return m_delegate.isErrorEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isErrorEnabled() : level <= LEVEL_ERROR;
     }
 
     @Override
     public boolean isFatalEnabled() {
-        return m_delegate.isFatalEnabled();
+        int level = cachedLevel();
+        return level == UNKNOWN ? m_delegate.isFatalEnabled() : level <= LEVEL_FATAL;
     }
 
     @Override
@@ -114,27 +131,37 @@ public class TrackingLogger implements PaxLogger {
 
     @Override
     public void trace(String message) {
-        m_delegate.trace(message);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.trace(message);
+        }
     }
 
     @Override
     public void trace(String format, Object arg) {
-        m_delegate.trace(format, arg);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.trace(format, arg);
+        }
     }
 
     @Override
     public void trace(String format, Object arg1, Object arg2) {
-        m_delegate.trace(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.trace(format, arg1, arg2);
+        }
     }
 
     @Override
     public void trace(String format, Object... arguments) {
-        m_delegate.trace(format, arguments);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.trace(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void trace(LoggerConsumer<E> consumer) throws E {
-        m_delegate.trace(consumer);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.trace(consumer);
+        }
     }
 
     @Override
@@ -164,27 +191,37 @@ public class TrackingLogger implements PaxLogger {
 
     @Override
     public void debug(String message) {
-        m_delegate.debug(message);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.debug(message);
+        }
     }
 
     @Override
     public void debug(String format, Object arg) {
-        m_delegate.debug(format, arg);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.debug(format, arg);
+        }
     }
 
     @Override
     public void debug(String format, Object arg1, Object arg2) {
-        m_delegate.debug(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.debug(format, arg1, arg2);
+        }
     }
 
     @Override
     public void debug(String format, Object... arguments) {
-        m_delegate.debug(format, arguments);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.debug(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void debug(LoggerConsumer<E> consumer) throws E {
-        m_delegate.debug(consumer);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.debug(consumer);
+        }
     }
 
     @Override
@@ -214,27 +251,37 @@ public class TrackingLogger implements PaxLogger {
     
     @Override
     public void info(String message) {
-        m_delegate.info(message);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.info(message);
+        }
     }
 
     @Override
     public void info(String format, Object arg) {
-        m_delegate.info(format, arg);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.info(format, arg);
+        }
     }
 
     @Override
     public void info(String format, Object arg1, Object arg2) {
-        m_delegate.info(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.info(format, arg1, arg2);
+        }
     }
 
     @Override
     public void info(String format, Object... arguments) {
-        m_delegate.info(format, arguments);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.info(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void info(LoggerConsumer<E> consumer) throws E {
-        m_delegate.info(consumer);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.info(consumer);
+        }
     }
 
     @Override
@@ -264,27 +311,37 @@ public class TrackingLogger implements PaxLogger {
     
     @Override
     public void warn(String message) {
-        m_delegate.warn(message);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.warn(message);
+        }
     }
 
     @Override
     public void warn(String format, Object arg) {
-        m_delegate.warn(format, arg);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.warn(format, arg);
+        }
     }
 
     @Override
     public void warn(String format, Object arg1, Object arg2) {
-        m_delegate.warn(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.warn(format, arg1, arg2);
+        }
     }
 
     @Override
     public void warn(String format, Object... arguments) {
-        m_delegate.warn(format, arguments);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.warn(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void warn(LoggerConsumer<E> consumer) throws E {
-        m_delegate.warn(consumer);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.warn(consumer);
+        }
     }
 
     @Override
@@ -314,27 +371,37 @@ public class TrackingLogger implements PaxLogger {
     
     @Override
     public void error(String message) {
-        m_delegate.error(message);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.error(message);
+        }
     }
 
     @Override
     public void error(String format, Object arg) {
-        m_delegate.error(format, arg);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.error(format, arg);
+        }
     }
 
     @Override
     public void error(String format, Object arg1, Object arg2) {
-        m_delegate.error(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.error(format, arg1, arg2);
+        }
     }
 
     @Override
     public void error(String format, Object... arguments) {
-        m_delegate.error(format, arguments);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.error(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void error(LoggerConsumer<E> consumer) throws E {
-        m_delegate.error(consumer);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.error(consumer);
+        }
     }
 
     @Override
@@ -364,27 +431,37 @@ public class TrackingLogger implements PaxLogger {
     
     @Override
     public void fatal(String message) {
-        m_delegate.fatal(message);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fatal(message);
+        }
     }
 
     @Override
     public void fatal(String format, Object arg) {
-        m_delegate.fatal(format, arg);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fatal(format, arg);
+        }
     }
 
     @Override
     public void fatal(String format, Object arg1, Object arg2) {
-        m_delegate.fatal(format, arg1, arg2);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fatal(format, arg1, arg2);
+        }
     }
 
     @Override
     public void fatal(String format, Object... arguments) {
-        m_delegate.fatal(format, arguments);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fatal(format, arguments);
+        }
     }
 
     @Override
     public <E extends Exception> void fatal(LoggerConsumer<E> consumer) throws E {
-        m_delegate.fatal(consumer);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fatal(consumer);
+        }
     }
 
     @Override
@@ -464,32 +541,44 @@ public class TrackingLogger implements PaxLogger {
 
     @Override
     public void fqtrace(String fqcn, String message) {
-        m_delegate.fqtrace(fqcn, message);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.fqtrace(fqcn, message);
+        }
     }
 
     @Override
     public void fqdebug(String fqcn, String message) {
-        m_delegate.fqdebug(fqcn, message);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.fqdebug(fqcn, message);
+        }
     }
 
     @Override
     public void fqinfo(String fqcn, String message) {
-        m_delegate.fqinfo(fqcn, message);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.fqinfo(fqcn, message);
+        }
     }
 
     @Override
     public void fqwarn(String fqcn, String message) {
-        m_delegate.fqwarn(fqcn, message);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.fqwarn(fqcn, message);
+        }
     }
 
     @Override
     public void fqerror(String fqcn, String message) {
-        m_delegate.fqerror(fqcn, message);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.fqerror(fqcn, message);
+        }
     }
 
     @Override
     public void fqfatal(String fqcn, String message) {
-        m_delegate.fqfatal(fqcn, message);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fqfatal(fqcn, message);
+        }
     }
 
     @Override
@@ -524,32 +613,44 @@ public class TrackingLogger implements PaxLogger {
 
     @Override
     public void fqtrace(String fqcn, String message, Throwable t) {
-        m_delegate.fqtrace(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_TRACE)) {
+            m_delegate.fqtrace(fqcn, message, t);
+        }
     }
 
     @Override
     public void fqdebug(String fqcn, String message, Throwable t) {
-        m_delegate.fqdebug(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_DEBUG)) {
+            m_delegate.fqdebug(fqcn, message, t);
+        }
     }
 
     @Override
     public void fqinfo(String fqcn, String message, Throwable t) {
-        m_delegate.fqinfo(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_INFO)) {
+            m_delegate.fqinfo(fqcn, message, t);
+        }
     }
 
     @Override
     public void fqwarn(String fqcn, String message, Throwable t) {
-        m_delegate.fqwarn(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_WARNING)) {
+            m_delegate.fqwarn(fqcn, message, t);
+        }
     }
 
     @Override
     public void fqerror(String fqcn, String message, Throwable t) {
-        m_delegate.fqerror(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_ERROR)) {
+            m_delegate.fqerror(fqcn, message, t);
+        }
     }
 
     @Override
     public void fqfatal(String fqcn, String message, Throwable t) {
-        m_delegate.fqfatal(fqcn, message, t);
+        if (mayBeEnabled(LEVEL_FATAL)) {
+            m_delegate.fqfatal(fqcn, message, t);
+        }
     }
 
     @Override
@@ -612,21 +713,81 @@ public class TrackingLogger implements PaxLogger {
      * @param service
      */
     public void added(PaxLoggingService service) {
+        switchDelegate(service);
+        // new delegate may have different level - invalidate cached levels (of all loggers)
+        ConfigurationEpoch.next();
+    }
+
+    /**
+     * Called by the tracker when there is no service available, and the reference should
+     * be dropped. Delegate is switched to fallback logger.
+     */
+    public void removed() {
+        switchDelegate(null);
+        ConfigurationEpoch.next();
+    }
+
+    private void switchDelegate(PaxLoggingService service) {
         m_service = service;
-        if (m_service != null) {
-            m_delegate = m_service.getLogger(m_bundle, m_category, m_fqcn);
+        if (service != null) {
+            m_delegate = service.getLogger(m_bundle, m_category, m_fqcn);
         } else {
             m_delegate = FallbackLogFactory.createFallbackLog(m_bundle, m_category);
         }
     }
 
     /**
-     * Called by the tracker when there is no service available, and the reference should
-     * be dropped. Delegate is switched to fallback logger.
+     * Returns effective level of the delegate if it's known for current {@link ConfigurationEpoch} or
+     * {@link #UNKNOWN} if the delegate has to be asked directly.
+     * @return
      */
-    public void removed() {
-        m_service = null;
-        m_delegate = FallbackLogFactory.createFallbackLog(m_bundle, m_category);
+    private int cachedLevel() {
+        int epoch = ConfigurationEpoch.current();
+        long cache = m_levelCache;
+        if ((int) (cache >>> 32) == epoch) {
+            return (int) cache;
+        }
+        return calculateLevel(epoch);
+    }
+
+    /**
+     * Whether logging at given level should be passed to the delegate. It's only {@code false} when it's sure
+     * that the delegate would discard the event anyway.
+     * @param level
+     * @return
+     */
+    private boolean mayBeEnabled(int level) {
+        int cached = cachedLevel();
+        return cached == UNKNOWN || cached <= level;
+    }
+
+    private int calculateLevel(int epoch) {
+        if (!ConfigurationEpoch.isLevelOnly(epoch) || m_service == null) {
+            // global filters in the backend or fallback logger (with level that may be changed at any time)
+            return UNKNOWN;
+        }
+
+        // epoch is read before the delegate - if the delegate is switched or backend is reconfigured after
+        // the epoch was read, the value is cached for already outdated epoch
+        PaxLogger delegate = m_delegate;
+        int level;
+        if (delegate.isTraceEnabled()) {
+            level = LEVEL_TRACE;
+        } else if (delegate.isDebugEnabled()) {
+            level = LEVEL_DEBUG;
+        } else if (delegate.isInfoEnabled()) {
+            level = LEVEL_INFO;
+        } else if (delegate.isWarnEnabled()) {
+            level = LEVEL_WARNING;
+        } else if (delegate.isErrorEnabled()) {
+            level = LEVEL_ERROR;
+        } else if (delegate.isFatalEnabled()) {
+            level = LEVEL_FATAL;
+        } else {
+            level = LEVEL_NONE;
+        }
+        m_levelCache = ((long) epoch << 32) | level;
+        return level;
     }
 
 }
@@ -25,7 +25,6 @@ import org.jboss.logging.LoggerProvider;
 import org.ops4j.pax.logging.PaxContext;
 import org.ops4j.pax.logging.PaxLogger;
 import org.ops4j.pax.logging.PaxLoggingManager;
-import org.ops4j.pax.logging.PaxLoggingService;
 import org.ops4j.pax.logging.internal.Activator;
 import org.ops4j.pax.logging.spi.support.FallbackLogFactory;
 import org.osgi.framework.FrameworkUtil;
@@ -39,8 +38,6 @@ public class PaxLoggingLoggerProvider implements LoggerProvider {
 
     /** {@link PaxContext} used when {@link org.ops4j.pax.logging.PaxLoggingService} is not available */
     private static PaxContext m_defaultContext = new PaxContext();
-    /** {@link PaxContext} obtained from {@link org.ops4j.pax.logging.PaxLoggingService} */
-    private static PaxContext m_context;
 
     public static void setPaxLoggingManager(PaxLoggingManager manager) {
         paxLogging = manager;
@@ -132,13 +129,8 @@ public class PaxLoggingLoggerProvider implements LoggerProvider {
 
     private static PaxContext getContext() {
         PaxLoggingManager manager = PaxLoggingLoggerProvider.paxLogging;
-        if (manager != null) {
-            synchronized (PaxLoggingLoggerProvider.class) {
-                PaxLoggingService service = manager.getPaxLoggingService();
-                m_context = service != null ? service.getPaxContext() : null;
-            }
-        }
-        return m_context != null ? m_context : m_defaultContext;
+        PaxContext context = manager != null ? manager.getPaxContext() : null;
+        return context != null ? context : m_defaultContext;
     }
 
 }
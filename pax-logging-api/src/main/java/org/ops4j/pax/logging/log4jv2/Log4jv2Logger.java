@@ -58,98 +58,82 @@ public class Log4jv2Logger extends AbstractLogger implements PaxLoggingManagerAw
 
     @Override
     public boolean isEnabled(Level level, Marker marker, Message message, Throwable t) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, Object message, Throwable t) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Throwable t) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object... params) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, CharSequence message, Throwable t) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
     public boolean isEnabled(Level level, Marker marker, String message, Object p0, Object p1, Object p2, Object p3, Object p4, Object p5, Object p6, Object p7, Object p8, Object p9) {
-        boolean mf = marker == null || markerDecision(level, marker);
-        return getLevel().intLevel() >= level.intLevel() && mf;
+        return getLevel().intLevel() >= level.intLevel() && (marker == null || markerDecision(level, marker));
     }
 
     @Override
@@ -216,6 +200,13 @@ public class Log4jv2Logger extends AbstractLogger implements PaxLoggingManagerAw
         }
     }
 
+    /**
+     * Checks whether the delegate is enabled for given level and marker. This requires new {@link PaxMarker},
+     * so it should be called only when the level itself is enabled - to keep disabled calls allocation-free.
+     * @param level
+     * @param marker
+     * @return
+     */
     private boolean markerDecision(Level level, Marker marker) {
         PaxMarker m = new PaxMarker(marker);
         if (level.intLevel() >= Level.ALL.intLevel()) {
@@ -38,24 +38,17 @@ public class Log4jv2ThreadContextMap implements ThreadContextMap {
 
     /** {@link PaxContext} used when {@link org.ops4j.pax.logging.PaxLoggingService} is not available */
     private static PaxContext m_defaultContext = new PaxContext();
-    /** {@link PaxContext} obtained from {@link org.ops4j.pax.logging.PaxLoggingService} */
-    private static PaxContext m_context;
 
     /**
      * For all the methods that operate against the context, return true if the MDC should use the PaxContext object from the PaxLoggingManager,
      * or if the logging manager is not set, or does not have its context available yet, use a default context local to this MDC.
-     * @return m_context if the MDC should use the PaxContext object from the PaxLoggingManager,
+     * @return the PaxContext of current service if the MDC should use the PaxContext object from the PaxLoggingManager,
      * or m_defaultContext if the logging manager is not set, or does not have its context available yet.
      */
     private static PaxContext getContext() {
         PaxLoggingManager manager = Log4jv2LoggerContext.paxLogging;
-        if (manager != null) {
-            synchronized (Log4jv2ThreadContextMap.class) {
-                PaxLoggingService service = manager.getPaxLoggingService();
-                m_context = service != null ? service.getPaxContext() : null;
-            }
-        }
-        return m_context != null ? m_context : m_defaultContext;
+        PaxContext context = manager != null ? manager.getPaxContext() : null;
+        return context != null ? context : m_defaultContext;
     }
 
     @Override
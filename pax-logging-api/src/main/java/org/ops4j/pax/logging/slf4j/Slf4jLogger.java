@@ -44,6 +44,8 @@ public class Slf4jLogger implements LocationAwareLogger, PaxLoggingManagerAwareL
     public static final String SLF4J_FQCN = Slf4jLogger.class.getName().intern();
     public static final String SLF4J_BUILDER_FQCN = DefaultLoggingEventBuilder.class.getName().intern();
 
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
     private String m_name;
     private PaxLogger m_delegate;
 
@@ -67,21 +69,28 @@ public class Slf4jLogger implements LocationAwareLogger, PaxLoggingManagerAwareL
 
     @Override
     public void log(LoggingEvent event) {
+        if (!isEnabledForLevel(event.getLevel())) {
+            // nothing will be logged, so don't prepare arguments and message
+            return;
+        }
+
         // see org.slf4j.spi.DefaultLoggingEventBuilder.logViaPublicSLF4JLoggerAPI()
         Object[] argArray = event.getArgumentArray();
         int argLen = argArray == null ? 0 : argArray.length;
 
         Throwable t = event.getThrowable();
-        int tLen = t == null ? 0 : 1;
 
         String msg = event.getMessage();
 
-        Object[] combinedArguments = new Object[argLen + tLen];
-
-        if (argArray != null) {
-            System.arraycopy(argArray, 0, combinedArguments, 0, argLen);
-        }
-        if (t != null) {
+        Object[] combinedArguments;
+        if (t == null) {
+            // arguments can be passed as they are
+            combinedArguments = argArray == null ? NO_ARGUMENTS : argArray;
+        } else {
+            combinedArguments = new Object[argLen + 1];
+            if (argArray != null) {
+                System.arraycopy(argArray, 0, combinedArguments, 0, argLen);
+            }
             combinedArguments[argLen] = t;
         }
 
@@ -35,8 +35,6 @@ public class Slf4jMDCAdapter implements MDCAdapter {
 
     /** {@link PaxContext} used when {@link org.ops4j.pax.logging.PaxLoggingService} is not available */
     private static final PaxContext m_defaultContext = new PaxContext();
-    /** {@link PaxContext} obtained from {@link org.ops4j.pax.logging.PaxLoggingService} */
-    private static PaxContext m_context;
 
     private final ThreadLocalMapOfStacks threadLocalMapOfDeques = new ThreadLocalMapOfStacks();
 
@@ -45,23 +43,18 @@ public class Slf4jMDCAdapter implements MDCAdapter {
      * bundle) if there's no available {@link PaxLoggingManager} or {@link PaxLoggingService}. If the service is
      * available, it is <strong>always</strong> used to get service specific {@link PaxContext}.</p>
      *
-     * <p>Refering <strong>always</strong> to {@link PaxLoggingService#getPaxContext()} is cheap operation, as it's
-     * only reference to fields.</p>
+     * <p>{@link PaxLoggingManager#getPaxContext()} only reads a volatile field, so there's no locking
+     * for MDC operations.</p>
      *
      * <p>See: <a href="https://ops4j1.jira.com/browse/PAXLOGGING-247">PAXLOGGING-247</a></p>
      *
-     * @return m_context if the MDC should use the PaxContext object from the PaxLoggingManager,
+     * @return the PaxContext of current service if the MDC should use the PaxContext object from the PaxLoggingManager,
      *      or m_defaultContext if the logging manager is not set, or does not have its context available yet.
      */
     private static PaxContext getContext() {
         PaxLoggingManager manager = Slf4jLoggerFactory.m_paxLogging;
-        if (manager != null) {
-            synchronized (Slf4jMDCAdapter.class) {
-                PaxLoggingService service = manager.getPaxLoggingService();
-                m_context = service != null ? service.getPaxContext() : null;
-            }
-        }
-        return m_context != null ? m_context : m_defaultContext;
+        PaxContext context = manager != null ? manager.getPaxContext() : null;
+        return context != null ? context : m_defaultContext;
     }
 
     @Override
@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi;
+
+import java.util.List;
+
+/**
+ * <p>{@link PaxAppender} that can process multiple events at once (e.g., to write them with single system call
+ * or database round-trip). It's registered as {@link PaxAppender} OSGi service, like other appenders.</p>
+ *
+ * <p>When events are passed to the appenders asynchronously (from per-appender queues), all events available
+ * in the queue are passed to {@link #doAppend(List)} together. Otherwise events are passed one by one to
+ * {@link #doAppend(PaxLoggingEvent)} and {@link #endOfBatch()} is called after the last event of a batch
+ * (e.g., the last event taken from the ring buffer of Log4J2 asynchronous loggers), so the appender may buffer
+ * the events (using {@link PaxLoggingEvent#toImmutable()}) and write them at the end of the batch.</p>
+ */
+public interface PaxBatchAppender extends PaxAppender {
+
+    /**
+     * Processes a batch of events.
+     *
+     * @param events events in the order they were logged. The list is valid only during the call.
+     */
+    void doAppend(List<PaxLoggingEvent> events);
+
+    /**
+     * Called after the last event of a batch passed to {@link #doAppend(PaxLoggingEvent)}. When events are
+     * logged synchronously, each event is the last event of its batch.
+     */
+    void endOfBatch();
+
+}
@@ -80,6 +80,14 @@ public interface PaxLoggingEvent {
      */
     String[] getThrowableStrRep();
 
+    /**
+     * Structured representation of exception associated with logging event, without rendering it to Strings.
+     * @return {@code null} if there's no exception or backend doesn't support it
+     */
+    default PaxThrowableInfo getThrowableInformation() {
+        return null;
+    }
+
     /**
      * {@link #getLocationInformation()} may not always be available (e.g., when compiled without debug
      * information).
@@ -99,4 +107,15 @@ public interface PaxLoggingEvent {
      */
     Map<String, Object> getProperties();
 
+    /**
+     * Returns an event that may be retained or passed to other threads. Backends may reuse their event objects
+     * for next logging calls, so this method should be called (in logging thread) by appenders that keep
+     * the events for later. {@link #getLocationInformation() Location} is available in the returned event
+     * only if it was already accessed in the original event.
+     * @return immutable copy of the event or this event if it's already safe to keep
+     */
+    default PaxLoggingEvent toImmutable() {
+        return this;
+    }
+
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi;
+
+/**
+ * Framework library agnostic, structured representation of exception carried by
+ * <em>logging event</em>. Unlike {@link PaxLoggingEvent#getThrowableStrRep()}, stack frames are available
+ * as data, so appenders serializing events (e.g., to JSON) don't have to parse rendered stack trace.
+ */
+public interface PaxThrowableInfo {
+
+    /**
+     * Fully qualified class name of the exception.
+     * @return
+     */
+    String getClassName();
+
+    /**
+     * Message of the exception, may be {@code null}.
+     * @return
+     */
+    String getMessage();
+
+    /**
+     * Stack frames of the exception, starting with the one where exception was created.
+     * @return
+     */
+    StackTraceElement[] getStackTrace();
+
+    /**
+     * Number of frames at the end of {@link #getStackTrace()} which are the same as in enclosing exception
+     * (for which this exception is a cause or suppressed exception). {@code 0} for top-level exception.
+     * @return
+     */
+    int getCommonFrames();
+
+    /**
+     * Cause of the exception or {@code null}.
+     * @return
+     */
+    PaxThrowableInfo getCause();
+
+    /**
+     * Suppressed exceptions, never {@code null}.
+     * @return
+     */
+    PaxThrowableInfo[] getSuppressed();
+
+}
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.logging.Level;
 
 import org.ops4j.pax.logging.EventAdminPoster;
+import org.ops4j.pax.logging.PaxLogReader;
 import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -57,7 +58,7 @@ public class BackendSupport {
     }
 
     /**
-     * Registers {@link LogReaderService} and makes it available for actual
+     * Registers {@link LogReaderService} (and {@link PaxLogReader}) and makes it available for actual
      * {@link org.ops4j.pax.logging.PaxLoggingService} implementation
      * @param context
      * @return
@@ -72,7 +73,10 @@ public class BackendSupport {
         LogReaderServiceImpl logReader = new LogReaderServiceImpl(100, FallbackLogFactory.createFallbackLog(context.getBundle(), "pax-logging"));
         Dictionary<String, Object> serviceProperties = new Hashtable<>();
         serviceProperties.put(Constants.SERVICE_RANKING, paxLoggingServiceRanking(context));
-        ServiceRegistration<LogReaderService> registration = context.registerService(LogReaderService.class, logReader, serviceProperties);
+        // also registered as org.ops4j.pax.logging.PaxLogReader for incremental reads
+        @SuppressWarnings("unchecked")
+        ServiceRegistration<LogReaderService> registration = (ServiceRegistration<LogReaderService>) context.registerService(
+                new String[] { LogReaderService.class.getName(), PaxLogReader.class.getName() }, logReader, serviceProperties);
 
         return new RegisteredService<>(logReader, registration);
     }
@@ -91,7 +95,16 @@ public class BackendSupport {
 
         EventAdminPoster eventAdmin = null;
         try {
-            eventAdmin = new EventAdminTracker(context);
+            EventAdminTracker tracker = new EventAdminTracker(context);
+            String queueSize = OsgiUtil.systemOrContextProperty(context, PaxLoggingConstants.LOGGING_CFG_EVENT_ADMIN_QUEUE_SIZE);
+            if (queueSize != null) {
+                try {
+                    tracker.setMaxLiveSize(Integer.parseInt(queueSize.trim()));
+                } catch (IllegalArgumentException e) {
+                    e.printStackTrace();
+                }
+            }
+            eventAdmin = tracker;
         } catch (NoClassDefFoundError e) {
             // If we hit a NCDFE, this means the event admin package is not available,
             // so use a dummy poster
@@ -177,6 +190,21 @@ public class BackendSupport {
         }
     }
 
+    /**
+     * Converts level name to {@link LogLevel} used as a minimum level of events (checked with
+     * {@link LogLevel#implies(LogLevel)}). Unlike {@link #convertR7LogLevel(String, LogLevel)}, {@code ALL}
+     * means {@link LogLevel#TRACE}, because {@link LogLevel#AUDIT} implies only itself.
+     * @param levelName
+     * @param defaultLevel
+     * @return {@code null} for {@code OFF}, {@code NONE} or {@code DISABLED}
+     */
+    public static LogLevel convertMinimumR7LogLevel(String levelName, LogLevel defaultLevel) {
+        if ("ALL".equalsIgnoreCase(levelName)) {
+            return LogLevel.TRACE;
+        }
+        return convertR7LogLevel(levelName, defaultLevel);
+    }
+
     /**
      * Converts pax-logging level name (anything that pax-logging supports, case-insensitive) to {@link Level}
      * from {@code java.util.logging}. If nothing can be parsed, {@link Level#INFO} is returned.
@@ -18,6 +18,9 @@
 package org.ops4j.pax.logging.spi.support;
 
 import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.osgi.framework.Bundle;
 import org.osgi.framework.FrameworkUtil;
@@ -27,11 +30,16 @@ public final class BundleHelper {
     private BundleHelper() {
     }
 
-    private static final SecurityManagerEx securityManager;
+    private static final StackWalker stackWalker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
     private static final Method getBundleMethod;
 
+    /**
+     * {@link Class} to {@link Bundle} mapping. The whole cache is replaced when bundles are refreshed or
+     * uninstalled (see {@link #invalidateCache()}).
+     */
+    private static volatile BundleCache bundleCache = new BundleCache();
+
     static {
-        securityManager = new SecurityManagerEx();
         Method mth = null;
         try {
             mth = FrameworkUtil.class.getMethod("getBundle", Class.class);
@@ -44,7 +52,7 @@ public final class BundleHelper {
      * Gets a {@link Bundle} invoking logging method which is the first bundle different than
      * pax-logging-api. If no bundle can't be found, {@code defaultBundle} is returned.
      *
-     * This method analyzes class context top down (skipping two topmost classes, as they're known to
+     * This method analyzes the stack top down (skipping two topmost classes, as they're known to
      * come from pax-logging-api bundle). Also, {@code java.util.logging} packages are skipped.
      *
      * @param defaultBundle
@@ -55,9 +63,9 @@ public final class BundleHelper {
     }
 
     /**
-     * Gets a {@link Bundle} with configurable number of top-most classes from context.
+     * Gets a {@link Bundle} with configurable number of top-most classes from the stack.
      *
-     * To be called from places where the class context stack is known. Be careful!
+     * To be called from places where the stack is known. Be careful!
      *
      * @param defaultBundle
      * @param skip
@@ -69,23 +77,13 @@ public final class BundleHelper {
         }
 
         try {
-            Class[] classCtx = securityManager.getClassContext();
             /*
-             * Skip first 2 classes on call stack since:
-             *  0 = "class org.ops4j.pax.logging.internal.BundleHelper$SecurityManagerEx.getClassContext()"
-             *  1 = "class org.ops4j.pax.logging.internal.BundleHelper.getCallerBundle()"
+             * "skip" counts this method as 2nd frame (it used to be the frame after
+             * "BundleHelper$SecurityManagerEx.getClassContext()"), while for StackWalker, this method is 1st frame
              */
-            Bundle curBundle = null;
-            for (int i = skip; i < classCtx.length; i++) {
-                Bundle bundle = FrameworkUtil.getBundle(classCtx[i]);
-                if (bundle == null && (classCtx[i].getPackage() == null
-                        || !classCtx[i].getPackage().getName().equals("java.util.logging"))) {
-                    return defaultBundle;
-                } else if (curBundle == null) {
-                    curBundle = bundle;
-                } else if (bundle != null && bundle != curBundle) {
-                    return bundle;
-                }
+            Bundle bundle = stackWalker.walk(frames -> firstForeignBundle(frames.skip(Math.max(skip - 1, 0))));
+            if (bundle != null) {
+                return bundle;
             }
         } catch (Exception ignored) {
         }
@@ -107,17 +105,28 @@ public final class BundleHelper {
         }
 
         try {
-            Class[] classCtx = securityManager.getClassContext();
-            int previousClass = -1;
-            for (int i = classCtx.length - 1; i >= 0; i--) {
-                if (previousClass != -1 && classCtx[i].getName().equals(fqcn)) {
-                    Bundle bundle = FrameworkUtil.getBundle(classCtx[previousClass]);
-                    if (bundle != null) {
-                        return bundle;
+            // stack is walked top-down, so the last bundle found is the one closest to the bottom of the stack
+            Bundle bundle = stackWalker.walk(frames -> {
+                Bundle found = null;
+                boolean afterFqcn = false;
+                for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+                    Class<?> cls = it.next().getDeclaringClass();
+                    if (cls.getName().equals(fqcn)) {
+                        afterFqcn = true;
+                    } else {
+                        if (afterFqcn) {
+                            Bundle b = bundle(cls);
+                            if (b != null) {
+                                found = b;
+                            }
+                        }
+                        afterFqcn = false;
                     }
-                } else {
-                    previousClass = i;
                 }
+                return found;
+            });
+            if (bundle != null) {
+                return bundle;
             }
         } catch (Exception ignored) {
         }
@@ -126,12 +135,48 @@ public final class BundleHelper {
     }
 
     /**
-     * {@link SecurityManager} that exposes {@code getClassContext} as public method.
+     * Invalidates cached {@link Class} to {@link Bundle} mapping. Should be called when bundles are refreshed
+     * or uninstalled, so the cache doesn't keep references to stale bundles.
+     */
+    public static void invalidateCache() {
+        bundleCache = new BundleCache();
+    }
+
+    /**
+     * Returns first bundle different than the bundle of first (top-most) class with a bundle. Stops at first
+     * class without a bundle (except {@code java.util.logging} classes). Returns {@code null} if there's no
+     * such bundle.
+     * @param frames
+     * @return
+     */
+    private static Bundle firstForeignBundle(Stream<StackWalker.StackFrame> frames) {
+        Bundle curBundle = null;
+        for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+            Class<?> cls = it.next().getDeclaringClass();
+            Bundle bundle = bundle(cls);
+            if (bundle == null && !"java.util.logging".equals(cls.getPackageName())) {
+                return null;
+            } else if (curBundle == null) {
+                curBundle = bundle;
+            } else if (bundle != null && bundle != curBundle) {
+                return bundle;
+            }
+        }
+        return null;
+    }
+
+    private static Bundle bundle(Class<?> cls) {
+        return bundleCache.get(cls).orElse(null);
+    }
+
+    /**
+     * {@link ClassValue} that remembers the result of {@link FrameworkUtil#getBundle(Class)}.
      */
-    static class SecurityManagerEx extends SecurityManager {
+    private static class BundleCache extends ClassValue<Optional<Bundle>> {
 
-        public Class[] getClassContext() {
-            return super.getClassContext();
+        @Override
+        protected Optional<Bundle> computeValue(Class<?> type) {
+            return Optional.ofNullable(FrameworkUtil.getBundle(type));
         }
     }
 
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * <p>Bundle related values added to MDC of each logging event by the backends ({@code bundle.id},
+ * {@code bundle.name} and {@code bundle.version}). The values are calculated once per {@link Bundle} and cached
+ * until the bundle is updated or uninstalled.</p>
+ *
+ * <p>The cache is static, so each backend (which private-packages this class) has its own cache and should
+ * register {@link #listener()} to invalidate it.</p>
+ */
+public final class BundleMetadata {
+
+    public static final String BUNDLE_ID = "bundle.id";
+    public static final String BUNDLE_NAME = "bundle.name";
+    public static final String BUNDLE_VERSION = "bundle.version";
+
+    /** Keyed by {@link Bundle} instance (identity), so lookups don't box bundle ids */
+    private static final ConcurrentMap<Bundle, BundleMetadata> CACHE = new ConcurrentHashMap<>();
+
+    private static final SynchronousBundleListener LISTENER = event -> {
+        int type = event.getType();
+        if (type == BundleEvent.UPDATED || type == BundleEvent.UNINSTALLED) {
+            CACHE.remove(event.getBundle());
+        }
+    };
+
+    private final String bundleId;
+    private final String bundleName;
+    private final String bundleVersion;
+    private final Map<String, String> context;
+
+    private BundleMetadata(Bundle bundle) {
+        bundleId = Long.toString(bundle.getBundleId()).intern();
+        String name = bundle.getSymbolicName();
+        bundleName = name == null ? null : name.intern();
+        bundleVersion = bundle.getVersion().toString().intern();
+
+        Map<String, String> map = new LinkedHashMap<>(4);
+        map.put(BUNDLE_ID, bundleId);
+        if (bundleName != null) {
+            map.put(BUNDLE_NAME, bundleName);
+        }
+        map.put(BUNDLE_VERSION, bundleVersion);
+        context = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * Returns (possibly cached) metadata of given bundle
+     * @param bundle
+     * @return
+     */
+    public static BundleMetadata of(Bundle bundle) {
+        BundleMetadata metadata = CACHE.get(bundle);
+        if (metadata == null) {
+            metadata = CACHE.computeIfAbsent(bundle, BundleMetadata::new);
+        }
+        return metadata;
+    }
+
+    /**
+     * {@link SynchronousBundleListener} that removes metadata of updated and uninstalled bundles from the cache.
+     * @return
+     */
+    public static SynchronousBundleListener listener() {
+        return LISTENER;
+    }
+
+    /**
+     * Clears entire cache
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    public String getBundleId() {
+        return bundleId;
+    }
+
+    public String getBundleName() {
+        return bundleName;
+    }
+
+    public String getBundleVersion() {
+        return bundleVersion;
+    }
+
+    /**
+     * Immutable map with {@code bundle.id}, {@code bundle.name} (if bundle has symbolic name) and
+     * {@code bundle.version} keys that may be shared between logging events.
+     * @return
+     */
+    public Map<String, String> getContext() {
+        return context;
+    }
+
+}
@@ -16,10 +16,15 @@
  */
 package org.ops4j.pax.logging.spi.support;
 
+import java.util.Collection;
 import java.util.Dictionary;
 import java.util.Hashtable;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.ops4j.pax.logging.EventAdminPoster;
 import org.osgi.framework.Bundle;
@@ -28,9 +33,12 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventAdmin;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogLevel;
 import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
 
 /**
  * This ServiceTracker is designed to implement the Event Admin service, but delegate
@@ -38,41 +46,93 @@ import org.osgi.util.tracker.ServiceTracker;
  *
  * If the Event Admin service is not available, this tracker will queue the Events until
  * the service becomes available.
+ *
+ * Events are passed to Event Admin by single background thread, so logging threads only add the events
+ * to bounded lock-free queue. The thread takes the events from the queue in batches. When the queue is full,
+ * oldest events are dropped. Without Event Admin the queue is limited by {@link #getMaxSize()}, while
+ * Event Admin is available - by (larger) {@link #getMaxLiveSize()}.
+ *
+ * {@link EventHandler} services are tracked as well (without getting the services), so events for levels
+ * without any subscribed handler are not created at all when Event Admin is available.
  */
 public class EventAdminTracker extends ServiceTracker<EventAdmin, EventAdmin>
         implements EventAdminPoster {
 
-    private final LinkedList<Event> m_queue;
+    private final Queue<Event> m_queue;
+    // size of m_queue (ConcurrentLinkedQueue.size() is O(n))
+    private final AtomicInteger m_queueSize = new AtomicInteger();
+    private final AtomicLong m_dropped = new AtomicLong();
     private BundleContext m_context;
-    private EventAdmin m_service;
+    private volatile EventAdmin m_service;
+
+    // limit of events buffered while Event Admin is not available
+    private volatile int m_maxSize;
+    // limit of events waiting for delivery to available Event Admin
+    private volatile int m_maxLiveSize;
+
+    private final Thread m_drainer;
+    private volatile boolean m_running = true;
+    private volatile boolean m_parked;
 
-    private int m_maxSize;
+    private static final String TOPIC_PREFIX = "org/osgi/service/log/LogEntry/";
+
+    public static final int DEFAULT_MAX_LIVE_SIZE = 10000;
+    // number of events taken from the queue at once by the drainer thread
+    private static final int MAX_BATCH_SIZE = 256;
+
+    // tracks references of EventHandlers to calculate per-level interest
+    private final ServiceTracker<EventHandler, ServiceReference<EventHandler>> m_handlers;
+    // bit for each LogLevel.ordinal() with at least one subscribed handler
+    private volatile int m_subscribedLevels;
 
     public EventAdminTracker(BundleContext context) {
         super(context, EventAdmin.class, null);
         m_context = context;
-        m_queue = new LinkedList<Event>();
+        m_queue = new ConcurrentLinkedQueue<>();
         m_maxSize = 50;
+        m_maxLiveSize = DEFAULT_MAX_LIVE_SIZE;
+        m_drainer = new Thread(this::drain, "pax-logging-event-admin");
+        m_drainer.setDaemon(true);
+        m_drainer.start();
+        m_handlers = new ServiceTracker<>(context, EventHandler.class, new HandlerCustomizer());
+        m_handlers.open();
         open();
     }
 
+    @Override
+    public boolean hasSubscribers(LogLevel level) {
+        // without Event Admin, events are queued for handlers that may not be registered yet
+        return m_service == null || (m_subscribedLevels & (1 << level.ordinal())) != 0;
+    }
+
     public void postEvent(Bundle bundle, LogLevel level, LogEntry entry, String message,
                           Throwable exception, ServiceReference<?> sr, Map<String, ?> context) {
         Event event = createEvent(bundle, level, entry, message, exception, sr, context);
-        synchronized (m_queue) {
-            m_queue.add(event);
+        m_queue.offer(event);
+        int maxSize = m_service == null ? m_maxSize : m_maxLiveSize;
+        if (m_queueSize.incrementAndGet() > maxSize) {
+            cleanup(maxSize);
+        }
+        if (m_parked && m_service != null) {
+            LockSupport.unpark(m_drainer);
         }
-        deliver();
-        cleanup();
     }
 
     public void destroy() {
         close();
     }
 
+    @Override
+    public void close() {
+        m_running = false;
+        LockSupport.unpark(m_drainer);
+        m_handlers.close();
+        super.close();
+    }
+
     public EventAdmin addingService(ServiceReference<EventAdmin> serviceReference) {
         m_service = m_context.getService(serviceReference);
-        deliver();
+        LockSupport.unpark(m_drainer);
         return m_service;
     }
 
@@ -80,33 +140,46 @@ public class EventAdminTracker extends ServiceTracker<EventAdmin, EventAdmin>
         m_service = null;
     }
 
-    private void deliver() {
-        EventAdmin forDelivery = m_service;
-        if (forDelivery == null) {
-            return;
-        }
-        while (m_queue.size() > 0) // Peter Doornbosch: Still not ok: this must be volatile or sync'd too!
-        // Niclas: volatile is meaningless semantics on a final reference.
-        //         I can't see while synchronized would be needed, since sync have
-        //         just happened, and if size is slightly incorrectly computed, nothing
-        //         will be harmed by it.
-        {
-            Event event = null;
-            synchronized (m_queue) {
-                // Make sure queue is still not empty (due to race conditions)
-                if (m_queue.size() > 0) {
-                    event = m_queue.remove(0);
+    /**
+     * Loop of the drainer thread - passes all queued events to Event Admin (when available) in batches and waits
+     * for more events.
+     */
+    private void drain() {
+        Event[] batch = new Event[MAX_BATCH_SIZE];
+        // batch[next] ... batch[end - 1] are taken from the queue, but not delivered yet
+        int next = 0;
+        int end = 0;
+        while (m_running) {
+            EventAdmin forDelivery = m_service;
+            if (forDelivery != null) {
+                if (next == end) {
+                    next = 0;
+                    end = 0;
+                    Event event;
+                    while (end < batch.length && (event = m_queue.poll()) != null) {
+                        m_queueSize.decrementAndGet();
+                        batch[end++] = event;
+                    }
                 }
-            }
-            if (event != null) {
-                try {
-                    forDelivery.postEvent(event);
-                } catch (IllegalStateException e) {
-                    synchronized (m_queue) {
-                        m_queue.add(event);
+                if (next < end) {
+                    try {
+                        while (next < end) {
+                            forDelivery.postEvent(batch[next]);
+                            batch[next++] = null;
+                        }
+                    } catch (IllegalStateException e) {
+                        // Event Admin is being unregistered - keep the rest of the batch (in order) for next one
+                        LockSupport.parkNanos(this, 10_000_000L);
                     }
+                    continue;
                 }
             }
+            m_parked = true;
+            // re-check after publishing m_parked, so either we see new event or the producer sees m_parked
+            if (m_running && (m_service == null || m_queue.isEmpty())) {
+                LockSupport.park(this);
+            }
+            m_parked = false;
         }
     }
 
@@ -127,16 +200,95 @@ public class EventAdminTracker extends ServiceTracker<EventAdmin, EventAdmin>
         m_maxSize = maxSize;
     }
 
-    private void cleanup() {
-        while (m_queue.size() > m_maxSize) {
-            synchronized (m_queue) {
-                m_queue.remove(0);
+    public int getMaxLiveSize() {
+        return m_maxLiveSize;
+    }
+
+    /**
+     * Sets how many events may wait for delivery to available Event Admin
+     * @param maxLiveSize
+     */
+    public void setMaxLiveSize(int maxLiveSize) {
+        if (maxLiveSize < 0) {
+            throw new IllegalArgumentException("MaxLiveSize must not be a negative number: " + maxLiveSize);
+        }
+        m_maxLiveSize = maxLiveSize;
+    }
+
+    /**
+     * Number of events dropped because the queue was full
+     * @return
+     */
+    public long getDroppedCount() {
+        return m_dropped.get();
+    }
+
+    /**
+     * Removes oldest events above max size of the queue
+     * @param maxSize
+     */
+    private void cleanup(int maxSize) {
+        while (m_queueSize.get() > maxSize) {
+            if (m_queue.poll() == null) {
+                break;
             }
+            m_queueSize.decrementAndGet();
+            m_dropped.incrementAndGet();
         }
     }
 
-    static Event createEvent(Bundle bundle, LogLevel level, LogEntry entry, String message,
-                             Throwable exception, ServiceReference<?> sr, Map<String, ?> context) {
+    /**
+     * Recalculates levels with subscribed {@link EventHandler} after any handler service change.
+     * @param added handler reference being added
+     */
+    private synchronized void recalculateSubscribedLevels(ServiceReference<EventHandler> added) {
+        // added reference is tracked only after ServiceTrackerCustomizer.addingService() returns
+        int levels = added == null ? 0 : subscribedLevels(added.getProperty(EventConstants.EVENT_TOPIC));
+        ServiceReference<EventHandler>[] references = m_handlers.getServiceReferences();
+        if (references != null) {
+            for (ServiceReference<EventHandler> reference : references) {
+                levels |= subscribedLevels(reference.getProperty(EventConstants.EVENT_TOPIC));
+            }
+        }
+        m_subscribedLevels = levels;
+    }
+
+    /**
+     * Calculates levels of log events matching {@link EventConstants#EVENT_TOPIC} property of a handler.
+     * @param topics {@code String}, {@code String[]} or {@code Collection<String>}
+     * @return
+     */
+    static int subscribedLevels(Object topics) {
+        int levels = 0;
+        if (topics instanceof String) {
+            levels |= subscribedLevels((String) topics);
+        } else if (topics instanceof String[]) {
+            for (String topic : (String[]) topics) {
+                levels |= subscribedLevels(topic);
+            }
+        } else if (topics instanceof Collection) {
+            for (Object topic : (Collection<?>) topics) {
+                if (topic instanceof String) {
+                    levels |= subscribedLevels((String) topic);
+                }
+            }
+        }
+        return levels;
+    }
+
+    private static int subscribedLevels(String topic) {
+        int levels = 0;
+        for (LogLevel level : LogLevel.values()) {
+            String levelTopic = topic(level);
+            if (topic.equals("*") || topic.equals(levelTopic)
+                    || (topic.endsWith("/*") && levelTopic.startsWith(topic.substring(0, topic.length() - 1)))) {
+                levels |= 1 << level.ordinal();
+            }
+        }
+        return levels;
+    }
+
+    static String topic(LogLevel level) {
         String type;
         switch (level) {
             case AUDIT:
@@ -158,7 +310,12 @@ public class EventAdminTracker extends ServiceTracker<EventAdmin, EventAdmin>
             default:
                 type = "LOG_OTHER";
         }
-        String topic = "org/osgi/service/log/LogEntry/" + type;
+        return TOPIC_PREFIX + type;
+    }
+
+    static Event createEvent(Bundle bundle, LogLevel level, LogEntry entry, String message,
+                             Throwable exception, ServiceReference<?> sr, Map<String, ?> context) {
+        String topic = topic(level);
         Dictionary<String, Object> props = new Hashtable<>();
         if (bundle != null) {
             props.put("bundle", bundle);
@@ -205,4 +362,24 @@ public class EventAdminTracker extends ServiceTracker<EventAdmin, EventAdmin>
         return new Event(topic, props);
     }
 
+    private class HandlerCustomizer implements ServiceTrackerCustomizer<EventHandler, ServiceReference<EventHandler>> {
+
+        @Override
+        public ServiceReference<EventHandler> addingService(ServiceReference<EventHandler> reference) {
+            // only the reference is needed, handler services are not obtained
+            recalculateSubscribedLevels(reference);
+            return reference;
+        }
+
+        @Override
+        public void modifiedService(ServiceReference<EventHandler> reference, ServiceReference<EventHandler> service) {
+            recalculateSubscribedLevels(null);
+        }
+
+        @Override
+        public void removedService(ServiceReference<EventHandler> reference, ServiceReference<EventHandler> service) {
+            recalculateSubscribedLevels(null);
+        }
+    }
+
 }
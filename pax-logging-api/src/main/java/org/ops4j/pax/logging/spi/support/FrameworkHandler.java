@@ -85,9 +85,11 @@ public class FrameworkHandler
                 break;
             case BundleEvent.UPDATED:
                 message = "BundleEvent UPDATED";
+                BundleHelper.invalidateCache();
                 break;
             case BundleEvent.UNINSTALLED:
                 message = "BundleEvent UNINSTALLED";
+                BundleHelper.invalidateCache();
                 break;
             case BundleEvent.RESOLVED:
                 message = "BundleEvent RESOLVED";
@@ -133,6 +135,7 @@ public class FrameworkHandler
                 break;
             case FrameworkEvent.PACKAGES_REFRESHED:
                 message = "FrameworkEvent PACKAGES REFRESHED";
+                BundleHelper.invalidateCache();
                 break;
             case FrameworkEvent.STARTED:
                 message = "FrameworkEvent STARTED";
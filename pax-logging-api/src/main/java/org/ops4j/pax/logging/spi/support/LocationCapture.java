@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.log.LogEntry;
+
+/**
+ * <p>Capture of source location for {@link LogEntry#getLocation()} of entries passed to
+ * {@link org.osgi.service.log.LogReaderService} and Event Admin. Location is found with {@link StackWalker},
+ * which (unlike {@link Throwable#getStackTrace()}) doesn't capture entire stack.</p>
+ *
+ * <p>Capture is enabled only for selected loggers and bundles, configured as comma-separated list of:<ul>
+ *     <li>{@code *} - all loggers</li>
+ *     <li>{@code bundle:<symbolic name>} - loggers of given bundle</li>
+ *     <li>logger name or its prefix, e.g., {@code org.example.} (matching also {@code org.example.Service})</li>
+ * </ul></p>
+ */
+public class LocationCapture {
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    private final boolean m_all;
+    private final String[] m_loggerPrefixes;
+    private final String[] m_bundles;
+
+    private LocationCapture(boolean all, List<String> loggerPrefixes, List<String> bundles) {
+        m_all = all;
+        m_loggerPrefixes = loggerPrefixes.toArray(new String[0]);
+        m_bundles = bundles.toArray(new String[0]);
+    }
+
+    /**
+     * Parses configuration of loggers/bundles for which location should be captured
+     * @param value
+     * @return {@code null} if location shouldn't be captured at all
+     */
+    public static LocationCapture parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        boolean all = false;
+        List<String> loggerPrefixes = new ArrayList<>();
+        List<String> bundles = new ArrayList<>();
+        for (String v : value.split(",")) {
+            v = v.trim();
+            if (v.isEmpty()) {
+                continue;
+            }
+            if ("*".equals(v)) {
+                all = true;
+            } else if (v.startsWith("bundle:")) {
+                bundles.add(v.substring("bundle:".length()).trim());
+            } else {
+                loggerPrefixes.add(v);
+            }
+        }
+        if (!all && loggerPrefixes.isEmpty() && bundles.isEmpty()) {
+            return null;
+        }
+        return new LocationCapture(all, loggerPrefixes, bundles);
+    }
+
+    /**
+     * Checks whether location should be captured for given logger
+     * @param loggerName
+     * @param bundle
+     * @return
+     */
+    public boolean matches(String loggerName, Bundle bundle) {
+        if (m_all) {
+            return true;
+        }
+        if (loggerName != null) {
+            for (String prefix : m_loggerPrefixes) {
+                if (loggerName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        if (bundle != null && m_bundles.length > 0) {
+            String symbolicName = bundle.getSymbolicName();
+            for (String b : m_bundles) {
+                if (b.equals(symbolicName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns location of the caller of logging facade - first frame after frames of class {@code fqcn}.
+     * @param fqcn class name of logging facade (e.g., slf4j logger) called by user code
+     * @return {@code null} if {@code fqcn} is not found on the stack
+     */
+    public static StackTraceElement locate(String fqcn) {
+        if (fqcn == null) {
+            return null;
+        }
+        return WALKER.walk(frames -> frames
+                .dropWhile(f -> !fqcn.equals(f.getClassName()))
+                .dropWhile(f -> fqcn.equals(f.getClassName()))
+                .findFirst()
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .orElse(null));
+    }
+
+}
@@ -38,8 +38,14 @@ public class LogEntryImpl implements LogEntry {
     private Throwable m_exception;
     private String m_thread;
     private Long m_seq;
+    private StackTraceElement m_location;
 
     public LogEntryImpl(String name, Bundle bundle, ServiceReference service, LogLevel level, String message, Throwable exception) {
+        this(name, bundle, service, level, message, exception, null);
+    }
+
+    public LogEntryImpl(String name, Bundle bundle, ServiceReference service, LogLevel level, String message, Throwable exception,
+                        StackTraceElement location) {
         if (bundle != null) {
             m_bundle = new WeakReference<>(bundle);
         }
@@ -56,6 +62,57 @@ public class LogEntryImpl implements LogEntry {
         m_name = name;
         m_thread = Thread.currentThread().getName();
         m_seq = seq.incrementAndGet();
+        m_location = location;
+    }
+
+    /**
+     * Recreates an entry restored from {@link LogHistoryFile}. Restored entry gets new sequence number, bundle
+     * and service reference are not available.
+     */
+    LogEntryImpl(String name, long time, LogLevel level, String message, Throwable exception, String thread) {
+        m_logLevel = level;
+        m_level = level.ordinal();
+        m_message = message;
+        m_exception = exception;
+        m_time = time;
+        m_name = name;
+        m_thread = thread;
+        m_seq = seq.incrementAndGet();
+    }
+
+    private LogEntryImpl(LogEntryImpl entry, Throwable exception) {
+        m_name = entry.m_name;
+        m_time = entry.m_time;
+        m_bundle = entry.m_bundle;
+        m_service = entry.m_service;
+        m_level = entry.m_level;
+        m_logLevel = entry.m_logLevel;
+        m_message = entry.m_message;
+        m_exception = exception;
+        m_thread = entry.m_thread;
+        m_seq = entry.m_seq;
+        m_location = entry.m_location;
+    }
+
+    /**
+     * Assigns next sequence number to the entry. Called when the entry is added to the history, so entries
+     * in the history are ordered by sequence numbers even if they were created concurrently.
+     */
+    void resequence() {
+        m_seq = seq.incrementAndGet();
+    }
+
+    void setSequence(long sequence) {
+        m_seq = sequence;
+    }
+
+    /**
+     * Returns a copy of this entry (with the same sequence number) with different exception
+     * @param exception
+     * @return
+     */
+    public LogEntryImpl withException(Throwable exception) {
+        return new LogEntryImpl(this, exception);
     }
 
     @Override
@@ -110,7 +167,7 @@ public class LogEntryImpl implements LogEntry {
 
     @Override
     public StackTraceElement getLocation() {
-        return null;
+        return m_location;
     }
 
 }
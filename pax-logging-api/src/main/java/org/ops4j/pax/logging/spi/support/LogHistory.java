@@ -0,0 +1,547 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.ops4j.pax.logging.PaxLogQuery;
+import org.osgi.framework.Bundle;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+/**
+ * <p>History of {@link LogEntry log entries} used by {@link LogReaderServiceImpl}. It's a multi-producer ring
+ * buffer - each appended entry gets next position and is stored in a slot at {@code position % capacity},
+ * overwriting the oldest entry. {@link LogEntryImpl} gets its sequence number together with the position, so
+ * sequence numbers of entries grow with their positions and consumers reading entries
+ * {@link #since(long, int) since} last seen sequence number never miss an entry stored later at lower position.</p>
+ *
+ * <p>Slot's position is set to {@code -1} before the entry is replaced and to new position after that,
+ * so readers can check (like with sequence lock) whether the entry they've read belongs to the position
+ * they expect.</p>
+ *
+ * <p>For {@link #query(PaxLogQuery) queries}, positions of entries are also appended to per-level and
+ * per-bundle rings of positions. Index entries are never removed - positions that are no longer in the history
+ * are simply rejected. Time range is found with binary search, because entries are appended in (almost)
+ * chronological order.</p>
+ *
+ * <p>Optionally, the history has a budget of (estimated) bytes. When it's exceeded, oldest entries are removed
+ * even if there's still space in the ring.</p>
+ */
+final class LogHistory {
+
+    // entries created concurrently may be stored in different order than their timestamps
+    private static final int REORDER_WINDOW = 16;
+
+    // max number of positions remembered for single bundle
+    private static final int BUNDLE_INDEX_SIZE = 256;
+
+    // rough sizes (in bytes) used to estimate size of an entry
+    private static final long ENTRY_SIZE = 128L;
+    private static final long STRING_SIZE = 40L;
+    private static final long THROWABLE_SIZE = 64L;
+    private static final long STACK_FRAME_SIZE = 64L;
+
+    private final int m_capacity;
+    private final AtomicReferenceArray<LogEntry> m_slots;
+    private final AtomicLongArray m_positions;
+    private final AtomicLong m_next = new AtomicLong(0);
+    // guards assignment of position together with sequence number
+    private final Object m_sequenceLock = new Object();
+
+    // estimated sizes of entries in slots and total estimated size
+    private final AtomicLongArray m_sizes;
+    private final AtomicLong m_bytes = new AtomicLong(0);
+    // first position that was not evicted because of memory budget
+    private final AtomicLong m_start = new AtomicLong(0);
+    // 0 means no budget
+    private volatile long m_maxBytes;
+
+    private final PositionIndex[] m_levels;
+    private final ConcurrentMap<Long, PositionIndex> m_bundles = new ConcurrentHashMap<>();
+
+    LogHistory(int capacity) {
+        m_capacity = capacity;
+        m_slots = new AtomicReferenceArray<>(capacity);
+        m_positions = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            m_positions.set(i, -1L);
+        }
+        m_sizes = new AtomicLongArray(capacity);
+        m_levels = new PositionIndex[LogLevel.values().length];
+        for (int i = 0; i < m_levels.length; i++) {
+            m_levels[i] = new PositionIndex(capacity);
+        }
+    }
+
+    /**
+     * Adds new entry to the history, assigning next sequence number to it
+     * @param entry
+     */
+    void add(LogEntry entry) {
+        add(entry, true);
+    }
+
+    /**
+     * Adds an entry copied from other history, keeping its sequence number. Must be called (in order of sequence
+     * numbers) before the history is used by other threads.
+     * @param entry
+     */
+    void copy(LogEntry entry) {
+        add(entry, false);
+    }
+
+    private void add(LogEntry entry, boolean resequence) {
+        long maxBytes = m_maxBytes;
+        long size = maxBytes > 0L ? estimateSize(entry) : 0L;
+        long position;
+        synchronized (m_sequenceLock) {
+            position = m_next.getAndIncrement();
+            if (resequence && entry instanceof LogEntryImpl) {
+                ((LogEntryImpl) entry).resequence();
+            }
+        }
+        int index = (int) (position % m_capacity);
+        m_positions.set(index, -1L);
+        m_bytes.addAndGet(size - m_sizes.getAndSet(index, size));
+        m_slots.set(index, entry);
+        m_positions.set(index, position);
+
+        LogLevel level = entry.getLogLevel();
+        if (level != null) {
+            m_levels[level.ordinal()].add(position);
+        }
+        Bundle bundle = entry.getBundle();
+        if (bundle != null) {
+            bundleIndex(bundle.getBundleId(), position).add(position);
+        }
+
+        if (maxBytes > 0L && m_bytes.get() > maxBytes) {
+            evict(position, maxBytes);
+        }
+    }
+
+    /**
+     * Sets the budget of estimated bytes of all the entries. {@code 0} means no budget. Entries added while
+     * there was no budget get their sizes estimated now, so they're subject to eviction as well.
+     * @param maxBytes
+     */
+    void setMaxBytes(long maxBytes) {
+        m_maxBytes = Math.max(maxBytes, 0L);
+        long next = m_next.get();
+        if (maxBytes > 0L && next > 0L) {
+            for (long position = start(next); position < next; position++) {
+                int index = (int) (position % m_capacity);
+                LogEntry entry = get(position);
+                if (entry != null && m_sizes.get(index) == 0L) {
+                    long size = estimateSize(entry);
+                    // the slot may be concurrently reused by add(), which records its own size
+                    if (m_sizes.compareAndSet(index, 0L, size)) {
+                        m_bytes.addAndGet(size);
+                    }
+                }
+            }
+            evict(next - 1, maxBytes);
+        }
+    }
+
+    /**
+     * Estimated size of all the entries - tracked only when there's a budget.
+     * @return
+     */
+    long getBytes() {
+        return m_bytes.get();
+    }
+
+    /**
+     * Removes oldest entries until the budget is met. The most recent entry is never removed.
+     * @param position last added position
+     * @param maxBytes
+     */
+    private void evict(long position, long maxBytes) {
+        while (m_bytes.get() > maxBytes) {
+            long start = m_start.get();
+            // positions older than capacity are already overwritten
+            long oldest = Math.max(start, position + 1 - m_capacity);
+            if (oldest >= position) {
+                break;
+            }
+            if (!m_start.compareAndSet(start, oldest + 1)) {
+                continue;
+            }
+            int index = (int) (oldest % m_capacity);
+            LogEntry entry = m_slots.get(index);
+            if (m_positions.compareAndSet(index, oldest, -1L)) {
+                // the slot may already be reused for new entry
+                m_slots.compareAndSet(index, entry, null);
+                m_bytes.addAndGet(-m_sizes.getAndSet(index, 0L));
+            }
+        }
+    }
+
+    /**
+     * Rough estimation of retained size of an entry. Bundle, service reference, logger and thread names
+     * are shared, so only the message and the exception are taken into account.
+     * @param entry
+     * @return
+     */
+    static long estimateSize(LogEntry entry) {
+        long size = ENTRY_SIZE;
+        String message = entry.getMessage();
+        if (message != null) {
+            size += STRING_SIZE + 2L * message.length();
+        }
+        Throwable t = entry.getException();
+        for (int depth = 0; t != null && depth < 32; depth++) {
+            size += THROWABLE_SIZE + STACK_FRAME_SIZE * t.getStackTrace().length;
+            String exceptionMessage = t.getMessage();
+            if (exceptionMessage != null) {
+                size += STRING_SIZE + 2L * exceptionMessage.length();
+            }
+            t = t.getCause();
+        }
+        return size;
+    }
+
+    /**
+     * First position that's still in the history
+     * @param end
+     * @return
+     */
+    private long start(long end) {
+        return Math.max(m_start.get(), Math.max(0L, end - m_capacity));
+    }
+
+    /**
+     * Returns entries from the most recent one. Entries being stored concurrently are skipped.
+     * @return
+     */
+    List<LogEntry> snapshot() {
+        long end = m_next.get();
+        long start = start(end);
+        List<LogEntry> result = new ArrayList<>((int) (end - start));
+        for (long position = end - 1; position >= start; position--) {
+            if (overwritten(position)) {
+                // older entries are overwritten as well
+                break;
+            }
+            LogEntry entry = get(position);
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns oldest entries with sequence greater than given one. First such position is found with binary
+     * search and the ring is scanned forward only until {@code maxEntries} entries are found, so the cost depends
+     * on the size of the batch and not on the number of new entries or the capacity. The scan stops at the first
+     * entry that's still being stored - entries after it are returned by next call, after the consumer gets this
+     * one.
+     * @param sequence
+     * @param maxEntries
+     * @return
+     */
+    List<LogEntry> since(long sequence, int maxEntries) {
+        long end = m_next.get();
+        long start = start(end);
+        List<LogEntry> result = null;
+        for (long position = firstPositionAfterSequence(sequence, start, end); position < end && maxEntries > 0; position++) {
+            LogEntry entry = get(position);
+            if (entry == null) {
+                if (overwritten(position) || position < m_start.get()) {
+                    continue;
+                }
+                // still being stored
+                break;
+            }
+            if (entry.getSequence() > sequence) {
+                if (result == null) {
+                    result = new ArrayList<>((int) Math.min(maxEntries, end - position));
+                }
+                result.add(entry);
+                maxEntries--;
+            }
+        }
+        return result == null ? Collections.emptyList() : result;
+    }
+
+    /**
+     * Returns entries matching the query, from the most recent one. Bundle index is used when bundle id is
+     * specified, level indexes are used when level is specified. Other criteria are checked for candidate entries.
+     * @param query
+     * @return
+     */
+    List<LogEntry> query(PaxLogQuery query) {
+        int limit = query.getLimit();
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        long end = m_next.get();
+        long start = start(end);
+        if (query.getTo() != Long.MAX_VALUE) {
+            end = firstPositionAfter(query.getTo(), start, end);
+        }
+        if (query.getFrom() != Long.MIN_VALUE) {
+            start = firstPositionAfter(query.getFrom() - 1L, start, end);
+        }
+
+        List<LogEntry> result = new ArrayList<>(Math.min(limit, (int) Math.max(0L, end - start)));
+        if (start >= end) {
+            return result;
+        }
+
+        if (query.getBundleId() >= 0L) {
+            PositionIndex index = m_bundles.get(query.getBundleId());
+            if (index == null) {
+                // there are no entries of this bundle in the history
+                return result;
+            }
+            IndexCursor cursor = new IndexCursor(index, start, end);
+            for (long position = cursor.next(); position >= 0L && result.size() < limit; position = cursor.next()) {
+                collect(position, query, result);
+            }
+            if (cursor.truncated() && result.size() < limit) {
+                // older positions of this bundle are no longer indexed
+                scan(Math.min(cursor.lowest(), end) - 1, start, query, result);
+            }
+            return result;
+        }
+
+        LogLevel level = query.getLevel();
+        if (level != null && level != LogLevel.TRACE) {
+            // union of indexes of given level and more important ones
+            List<IndexCursor> cursors = new ArrayList<>();
+            for (LogLevel l : LogLevel.values()) {
+                if (level.implies(l)) {
+                    cursors.add(new IndexCursor(m_levels[l.ordinal()], start, end));
+                }
+            }
+            long[] heads = new long[cursors.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = cursors.get(i).next();
+            }
+            while (result.size() < limit) {
+                int newest = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (heads[i] >= 0L && (newest == -1 || heads[i] > heads[newest])) {
+                        newest = i;
+                    }
+                }
+                if (newest == -1) {
+                    break;
+                }
+                collect(heads[newest], query, result);
+                heads[newest] = cursors.get(newest).next();
+            }
+            return result;
+        }
+
+        scan(end - 1, start, query, result);
+        return result;
+    }
+
+    /**
+     * Checks entries from {@code from} position down to {@code start} position
+     */
+    private void scan(long from, long start, PaxLogQuery query, List<LogEntry> result) {
+        for (long position = from; position >= start && result.size() < query.getLimit(); position--) {
+            if (overwritten(position)) {
+                break;
+            }
+            collect(position, query, result);
+        }
+    }
+
+    private void collect(long position, PaxLogQuery query, List<LogEntry> result) {
+        LogEntry entry = get(position);
+        if (entry != null && query.matches(entry)) {
+            result.add(entry);
+        }
+    }
+
+    /**
+     * Binary search for first position in {@code [low, high)} range with entry logged after given time
+     * @return
+     */
+    private long firstPositionAfter(long time, long low, long high) {
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (timeAt(middle) > time) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary search for first position in {@code [low, high)} range with entry of sequence greater than
+     * given one
+     * @return
+     */
+    private long firstPositionAfterSequence(long sequence, long low, long high) {
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (sequenceAt(middle) > sequence) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private long sequenceAt(long position) {
+        LogEntry entry = get(position);
+        if (entry == null) {
+            return overwritten(position) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return entry.getSequence();
+    }
+
+    private long timeAt(long position) {
+        LogEntry entry = get(position);
+        if (entry == null) {
+            // overwritten entry is older than anything, entry being stored is the newest one
+            return overwritten(position) ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return entry.getTime();
+    }
+
+    private PositionIndex bundleIndex(long bundleId, long position) {
+        PositionIndex index = m_bundles.get(bundleId);
+        if (index == null) {
+            if (m_bundles.size() >= m_capacity) {
+                // remove indexes of bundles without entries in the history
+                long start = position - m_capacity;
+                m_bundles.values().removeIf(i -> i.newest() < start);
+            }
+            index = m_bundles.computeIfAbsent(bundleId, id -> new PositionIndex(Math.min(m_capacity, BUNDLE_INDEX_SIZE)));
+        }
+        return index;
+    }
+
+    private boolean overwritten(long position) {
+        return m_positions.get((int) (position % m_capacity)) > position;
+    }
+
+    /**
+     * Returns entry stored at given position or {@code null} if it's being stored or replaced
+     * @param position
+     * @return
+     */
+    private LogEntry get(long position) {
+        int index = (int) (position % m_capacity);
+        if (m_positions.get(index) != position) {
+            return null;
+        }
+        LogEntry entry = m_slots.get(index);
+        return m_positions.get(index) == position ? entry : null;
+    }
+
+    /**
+     * Ring of positions of entries sharing some property (level, bundle)
+     */
+    private static final class PositionIndex {
+
+        private final int m_capacity;
+        private final AtomicLongArray m_positions;
+        private final AtomicLong m_next = new AtomicLong(0);
+
+        PositionIndex(int capacity) {
+            m_capacity = capacity;
+            m_positions = new AtomicLongArray(capacity);
+        }
+
+        void add(long position) {
+            long i = m_next.getAndIncrement();
+            m_positions.set((int) (i % m_capacity), position);
+        }
+
+        long newest() {
+            long next = m_next.get();
+            return next == 0L ? -1L : m_positions.get((int) ((next - 1) % m_capacity));
+        }
+    }
+
+    /**
+     * Iterates over indexed positions from the most recent one, returning only positions from given range.
+     */
+    private static final class IndexCursor {
+
+        private final PositionIndex m_index;
+        private final long m_start;
+        private final long m_end;
+        private final long m_min;
+        private long m_i;
+        private int m_older;
+        private long m_lowest = Long.MAX_VALUE;
+
+        IndexCursor(PositionIndex index, long start, long end) {
+            m_index = index;
+            m_start = start;
+            m_end = end;
+            long next = index.m_next.get();
+            m_i = next - 1;
+            m_min = Math.max(0L, next - index.m_capacity);
+        }
+
+        /**
+         * @return next position or {@code -1}
+         */
+        long next() {
+            while (m_i >= m_min && m_older < REORDER_WINDOW) {
+                long position = m_index.m_positions.get((int) (m_i-- % m_index.m_capacity));
+                m_lowest = Math.min(m_lowest, position);
+                if (position >= m_end) {
+                    continue;
+                }
+                if (position < m_start) {
+                    m_older++;
+                    continue;
+                }
+                return position;
+            }
+            return -1L;
+        }
+
+        /**
+         * Whether the index was exhausted before positions older than the range were found
+         * @return
+         */
+        boolean truncated() {
+            return m_older < REORDER_WINDOW && m_i < m_min && m_min > 0L;
+        }
+
+        long lowest() {
+            return m_lowest == Long.MAX_VALUE ? m_end : m_lowest;
+        }
+    }
+
+}
@@ -0,0 +1,544 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.log.LogEntry;
+import org.osgi.service.log.LogLevel;
+
+/**
+ * <p>Persistent copy of recent {@link LogEntry log entries} kept in memory-mapped ring file, so the history
+ * of {@link LogReaderServiceImpl} survives crash or restart of the JVM. Entries are written directly to
+ * {@link MappedByteBuffer} without forcing it to disk - the data is persisted by operating system even if
+ * the JVM crashes.</p>
+ *
+ * <p>The file has fixed number of fixed-size slots:<pre>
+ * header (32 bytes): long magic, int version, int slot size, int number of slots
+ * slot: int payload length (0 = empty slot), int CRC32 of the payload, payload
+ * payload: long position, long time, byte LogLevel ordinal, long bundle id (-1 if unknown),
+ *          bundle symbolic name, logger name, thread name, message,
+ *          byte number of throwables (the exception and its causes), for each throwable:
+ *              class name, message, short number of frames, short number of common frames, for each frame:
+ *                  class name, method name, file name, int line number
+ * string: short length in bytes (-1 for null), UTF-8 bytes
+ * </pre>
+ * Like in {@link Throwable#printStackTrace()}, frames of a cause which are the same as last frames of
+ * the enclosing exception are not stored - only their number is. The space left for throwables is shared
+ * by the exception and its causes and each of them has at most {@link #MAX_FRAMES} frames, so class name and
+ * message of every cause are kept. Other data that doesn't fit into the slot is truncated. Entry with position
+ * {@code p} is stored in slot {@code p % slots}. Slots with invalid checksum (e.g., torn writes) are ignored.
+ * Files written with version 1 of the format (without number of common frames) can still be read.</p>
+
+ * <p>Existing file is never truncated (it's only cleared), because the JVM unmaps a file only when its mapped
+ * buffer is garbage collected. So after reopening the file with lower capacity, it may be longer than needed.</p>
+ *
+ * <p>The file can be decoded offline with:<pre>
+ * java -cp pax-logging-api.jar org.ops4j.pax.logging.spi.support.LogHistoryFile &lt;file&gt;
+ * </pre></p>
+ */
+public class LogHistoryFile implements AutoCloseable {
+
+    public static final int SLOT_SIZE = 2048;
+
+    private static final long MAGIC = 0x5041584C4F474831L; // PAXLOGH1
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 32;
+    // payload length and checksum
+    private static final int SLOT_HEADER_SIZE = 8;
+    // limit of bundle, logger and thread names, so there's space left for the message
+    private static final int MAX_NAME_LENGTH = 256;
+    private static final int MAX_THROWABLES = 8;
+    private static final int MAX_FRAMES = 32;
+    // class name, message, number of frames and number of common frames
+    private static final int THROWABLE_HEADER_SIZE = 8;
+
+    private final File m_file;
+    private final int m_capacity;
+    private final RandomAccessFile m_raf;
+    private final MappedByteBuffer m_buffer;
+    private final AtomicLong m_next;
+    // entries found in the file when it was opened
+    private final List<Record> m_restored;
+    // number of threads writing to the file - close() waits for them
+    private final AtomicInteger m_writers = new AtomicInteger();
+    private volatile boolean m_closed;
+
+    /**
+     * Opens (or creates) the file with given number of slots. If existing file has different geometry,
+     * its most recent entries are rewritten to new layout.
+     * @param file
+     * @param capacity number of slots
+     * @throws IOException
+     */
+    public LogHistoryFile(File file, int capacity) throws IOException {
+        this(file, capacity, true);
+    }
+
+    /**
+     * Opens (or creates) the file with given number of slots.
+     * @param file
+     * @param capacity number of slots
+     * @param restore whether to keep existing entries from the file - if {@code false}, the file is cleared
+     * @throws IOException
+     */
+    public LogHistoryFile(File file, int capacity, boolean restore) throws IOException {
+        if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE) {
+            throw new IllegalArgumentException("Illegal capacity of log history file: " + capacity);
+        }
+        m_file = file;
+        m_capacity = capacity;
+        List<Record> records = restore && file.isFile() && file.length() > 0 ? read(file) : new ArrayList<>();
+        if (records.size() > capacity) {
+            records = new ArrayList<>(records.subList(records.size() - capacity, records.size()));
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        m_raf = new RandomAccessFile(file, "rw");
+        long length = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        ByteBuffer header = null;
+        if (restore && m_raf.length() >= length) {
+            header = ByteBuffer.allocate(HEADER_SIZE);
+            m_raf.getChannel().read(header, 0L);
+        }
+        boolean layoutMatches = header != null && header.getLong(0) == MAGIC && header.getInt(8) == VERSION
+                && header.getInt(12) == SLOT_SIZE && header.getInt(16) == capacity;
+        if (m_raf.length() < length) {
+            // the file is never truncated - previous mappings of the file may still exist until they're
+            // garbage collected and accessing truncated mapping crashes the JVM (and Windows doesn't allow it)
+            m_raf.setLength(length);
+        }
+        m_buffer = m_raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (layoutMatches) {
+            m_next = new AtomicLong(records.isEmpty() ? 0L : records.get(records.size() - 1).position + 1L);
+        } else {
+            for (int i = 0; i < capacity; i++) {
+                m_buffer.putInt(HEADER_SIZE + i * SLOT_SIZE, 0);
+            }
+            m_buffer.putLong(0, MAGIC);
+            m_buffer.putInt(8, VERSION);
+            m_buffer.putInt(12, SLOT_SIZE);
+            m_buffer.putInt(16, capacity);
+            m_next = new AtomicLong(0L);
+            for (Record r : records) {
+                write(m_next.getAndIncrement(), r.time, r.level, r.bundleId, r.bundleSymbolicName,
+                        r.loggerName, r.threadName, r.message, r.exception);
+            }
+        }
+        m_restored = records;
+    }
+
+    /**
+     * Entries that were found in the file when it was opened, oldest first.
+     * @return
+     */
+    public List<Record> getRestored() {
+        return m_restored;
+    }
+
+    public File getFile() {
+        return m_file;
+    }
+
+    public int getCapacity() {
+        return m_capacity;
+    }
+
+    /**
+     * Writes the entry to next slot of the file. May be called concurrently. Does nothing after {@link #close()}.
+     * @param entry
+     */
+    public void append(LogEntry entry) {
+        m_writers.incrementAndGet();
+        try {
+            if (m_closed) {
+                return;
+            }
+            Bundle bundle = entry.getBundle();
+            write(m_next.getAndIncrement(), entry.getTime(), entry.getLogLevel(),
+                    bundle == null ? -1L : bundle.getBundleId(), bundle == null ? null : bundle.getSymbolicName(),
+                    entry.getLoggerName(), entry.getThreadInfo(), entry.getMessage(), entry.getException());
+        } finally {
+            m_writers.decrementAndGet();
+        }
+    }
+
+    private void write(long position, long time, LogLevel level, long bundleId, String bundleSymbolicName,
+                       String loggerName, String threadName, String message, Throwable exception) {
+        int offset = HEADER_SIZE + (int) (position % m_capacity) * SLOT_SIZE;
+        ByteBuffer slot = m_buffer.duplicate();
+        // invalidate the slot while it's being written
+        slot.putInt(offset, 0);
+
+        slot.limit(offset + SLOT_SIZE);
+        slot.position(offset + SLOT_HEADER_SIZE);
+        slot.putLong(position);
+        slot.putLong(time);
+        slot.put((byte) (level == null ? LogLevel.INFO : level).ordinal());
+        slot.putLong(bundleId);
+        // reserve space for lengths of following strings and for number of throwables
+        putString(slot, bundleSymbolicName, MAX_NAME_LENGTH, 7);
+        putString(slot, loggerName, MAX_NAME_LENGTH, 5);
+        putString(slot, threadName, MAX_NAME_LENGTH, 3);
+        putString(slot, message, Short.MAX_VALUE, 1);
+        putThrowables(slot, exception);
+
+        int length = slot.position() - offset - SLOT_HEADER_SIZE;
+        ByteBuffer payload = m_buffer.duplicate();
+        payload.limit(offset + SLOT_HEADER_SIZE + length);
+        payload.position(offset + SLOT_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        slot.putInt(offset + 4, (int) crc.getValue());
+        slot.putInt(offset, length);
+    }
+
+    private static void putThrowables(ByteBuffer slot, Throwable exception) {
+        if (slot.remaining() < 1) {
+            return;
+        }
+        List<Throwable> chain = new ArrayList<>();
+        for (Throwable t = exception; t != null && chain.size() < MAX_THROWABLES; t = t.getCause()) {
+            if (chain.contains(t)) {
+                break;
+            }
+            chain.add(t);
+        }
+        int count = Math.min(chain.size(), (slot.remaining() - 1) / THROWABLE_HEADER_SIZE);
+        slot.put((byte) count);
+        int slotLimit = slot.limit();
+        StackTraceElement[] enclosingTrace = null;
+        // whether all frames of the enclosing throwable can be restored
+        boolean enclosingRestored = false;
+        for (int i = 0; i < count; i++) {
+            Throwable t = chain.get(i);
+            // remaining space is shared by this throwable and its remaining causes
+            slot.limit(slot.position() + slot.remaining() / (count - i));
+            String className = t instanceof ThrowableSnapshot ? ((ThrowableSnapshot) t).getClassName()
+                    : t.getClass().getName();
+            putString(slot, className, MAX_NAME_LENGTH, 6);
+            putString(slot, t.getMessage(), Short.MAX_VALUE, 4);
+            StackTraceElement[] trace = t.getStackTrace();
+            int common = commonFrames(trace, enclosingTrace);
+            int framesPosition = slot.position();
+            slot.putShort((short) 0);
+            // without all frames of the enclosing throwable, only the frames of this one are restored
+            slot.putShort((short) (enclosingRestored ? common : 0));
+            int frames = 0;
+            while (frames < trace.length - common && frames < MAX_FRAMES) {
+                StackTraceElement frame = trace[frames];
+                // 3 strings and line number
+                if (slot.remaining() < 10 + stringSize(frame.getClassName()) + stringSize(frame.getMethodName())
+                        + stringSize(frame.getFileName())) {
+                    break;
+                }
+                putString(slot, frame.getClassName(), MAX_NAME_LENGTH, 8);
+                putString(slot, frame.getMethodName(), MAX_NAME_LENGTH, 6);
+                putString(slot, frame.getFileName(), MAX_NAME_LENGTH, 4);
+                slot.putInt(frame.getLineNumber());
+                frames++;
+            }
+            slot.putShort(framesPosition, (short) frames);
+            enclosingRestored = frames == trace.length - common && (common == 0 || enclosingRestored);
+            enclosingTrace = trace;
+            slot.limit(slotLimit);
+        }
+    }
+
+    /**
+     * Counts frames at the end of {@code trace} which are equal to frames at the end of {@code enclosingTrace}
+     */
+    private static int commonFrames(StackTraceElement[] trace, StackTraceElement[] enclosingTrace) {
+        if (enclosingTrace == null) {
+            return 0;
+        }
+        int m = trace.length - 1;
+        int n = enclosingTrace.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+            m--;
+            n--;
+        }
+        return trace.length - 1 - m;
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // UTF-8 length isn't needed exactly - the string is truncated anyway if it doesn't fit
+        return Math.min(value.length(), MAX_NAME_LENGTH);
+    }
+
+    /**
+     * Writes a string truncated to {@code maxLength} bytes and to space remaining in the slot
+     * after {@code reserved} bytes
+     */
+    private static void putString(ByteBuffer slot, String value, int maxLength, int reserved) {
+        if (value == null) {
+            slot.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.max(0, Math.min(bytes.length, Math.min(maxLength, slot.remaining() - 2 - reserved)));
+        if (length < bytes.length) {
+            // don't split multi-byte character
+            while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+                length--;
+            }
+        }
+        slot.putShort((short) length);
+        slot.put(bytes, 0, length);
+    }
+
+    private static String getString(ByteBuffer slot) {
+        short length = slot.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        slot.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads all valid entries from the file, oldest first. Doesn't require running pax-logging.
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static List<Record> read(File file) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_SIZE) {
+                return records;
+            }
+            // read to heap, so no mapping of the file is left behind
+            byte[] data = new byte[(int) Math.min(raf.length(), Integer.MAX_VALUE)];
+            raf.readFully(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            int version = buffer.getInt(8);
+            if (buffer.getLong(0) != MAGIC || version < 1 || version > VERSION) {
+                throw new IOException(file + " is not a pax-logging history file");
+            }
+            int slotSize = buffer.getInt(12);
+            int capacity = buffer.getInt(16);
+            if (slotSize <= SLOT_HEADER_SIZE || capacity <= 0) {
+                throw new IOException(file + " is corrupted");
+            }
+            // only complete slots of truncated file are read
+            capacity = (int) Math.min(capacity, (raf.length() - HEADER_SIZE) / slotSize);
+            for (int i = 0; i < capacity; i++) {
+                Record record = readSlot(buffer, HEADER_SIZE + i * slotSize, slotSize, version);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+        records.sort((r1, r2) -> Long.compare(r1.position, r2.position));
+        return records;
+    }
+
+    private static Record readSlot(ByteBuffer buffer, int offset, int slotSize, int version) {
+        int length = buffer.getInt(offset);
+        if (length <= 0 || length > slotSize - SLOT_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(offset + SLOT_HEADER_SIZE + length);
+        payload.position(offset + SLOT_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+            return null;
+        }
+        try {
+            Record record = new Record();
+            record.position = payload.getLong();
+            record.time = payload.getLong();
+            int level = payload.get();
+            record.level = level >= 0 && level < LogLevel.values().length ? LogLevel.values()[level] : LogLevel.INFO;
+            record.bundleId = payload.getLong();
+            record.bundleSymbolicName = getString(payload);
+            record.loggerName = getString(payload);
+            record.threadName = getString(payload);
+            record.message = getString(payload);
+            record.exception = payload.hasRemaining() ? getThrowables(payload, version) : null;
+            return record;
+        } catch (RuntimeException e) {
+            // BufferUnderflowException and similar - checksum matched, but the content is still invalid
+            return null;
+        }
+    }
+
+    private static ThrowableSnapshot getThrowables(ByteBuffer payload, int version) {
+        int count = payload.get();
+        String[] classNames = new String[count];
+        String[] messages = new String[count];
+        StackTraceElement[][] stackTraces = new StackTraceElement[count][];
+        for (int i = 0; i < count; i++) {
+            classNames[i] = getString(payload);
+            messages[i] = getString(payload);
+            int stored = payload.getShort();
+            int common = version > 1 ? payload.getShort() : 0;
+            if (i == 0 || common < 0 || common > stackTraces[i - 1].length) {
+                common = 0;
+            }
+            StackTraceElement[] frames = new StackTraceElement[stored + common];
+            if (common > 0) {
+                // common frames are the last frames of the enclosing throwable
+                System.arraycopy(stackTraces[i - 1], stackTraces[i - 1].length - common, frames, stored, common);
+            }
+            for (int f = 0; f < stored; f++) {
+                String className = getString(payload);
+                String methodName = getString(payload);
+                String fileName = getString(payload);
+                frames[f] = new StackTraceElement(className, methodName, fileName, payload.getInt());
+            }
+            stackTraces[i] = frames;
+        }
+        ThrowableSnapshot result = null;
+        for (int i = count - 1; i >= 0; i--) {
+            result = new ThrowableSnapshot(classNames[i], messages[i], stackTraces[i], result);
+        }
+        return result;
+    }
+
+    /**
+     * Stops writing to the file. Waits for threads that are still writing entries, so the file can be
+     * reopened (possibly with different capacity) right after this method returns.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (m_closed) {
+            return;
+        }
+        m_closed = true;
+        // writing an entry is only copying its data to the mapped buffer
+        while (m_writers.get() > 0) {
+            Thread.yield();
+        }
+        // not on the logging path, so the data can be flushed
+        m_buffer.force();
+        m_raf.close();
+    }
+
+    /**
+     * Offline decoder printing all the entries of given history files
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: java " + LogHistoryFile.class.getName() + " <file> ...");
+            System.exit(1);
+        }
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        PrintStream out = System.out;
+        for (String arg : args) {
+            for (Record r : read(new File(arg))) {
+                out.println(format.format(new Date(r.time)) + " | " + String.format("%-5s", r.level)
+                        + " | " + r.threadName + " | " + r.bundleId + " - " + r.bundleSymbolicName
+                        + " | " + r.loggerName + " | " + r.message);
+                if (r.exception != null) {
+                    r.exception.printStackTrace(out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Entry read from the file
+     */
+    public static class Record {
+
+        private long position;
+        private long time;
+        private LogLevel level;
+        private long bundleId;
+        private String bundleSymbolicName;
+        private String loggerName;
+        private String threadName;
+        private String message;
+        private ThrowableSnapshot exception;
+
+        /**
+         * Converts the record to {@link LogEntry} with new sequence number and without bundle
+         * @return
+         */
+        public LogEntry toLogEntry() {
+            return new LogEntryImpl(loggerName, time, level, message, exception, threadName);
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public LogLevel getLevel() {
+            return level;
+        }
+
+        /**
+         * Id of the bundle that logged the entry or {@code -1}
+         * @return
+         */
+        public long getBundleId() {
+            return bundleId;
+        }
+
+        public String getBundleSymbolicName() {
+            return bundleSymbolicName;
+        }
+
+        public String getLoggerName() {
+            return loggerName;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Throwable getException() {
+            return exception;
+        }
+    }
+
+}
@@ -18,14 +18,24 @@
  */
 package org.ops4j.pax.logging.spi.support;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.Enumeration;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.ops4j.pax.logging.PaxLogQuery;
+import org.ops4j.pax.logging.PaxLogReader;
 import org.ops4j.pax.logging.PaxLogger;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogListener;
@@ -37,66 +47,350 @@ import org.osgi.service.log.LogReaderService;
  * This class was previously implemented in all backends (differently in each of them).
  * Now it's common in pax-logging-api bundle and may be reused by the backends (using {@link BackendSupport}).
  *
+ * The history is kept in fixed-capacity ring buffer, so {@link #fireEvent(LogEntry)} doesn't lock anything
+ * and {@link #getLog()} doesn't block logging threads.
+ *
+ * By default {@link LogListener listeners} are called synchronously in the thread that logs. After
+ * {@link #setAsyncDispatch(int, OverflowPolicy)} each listener gets its own bounded queue and delivery thread
+ * (as allowed by OSGi CMPN R7 "101.6 Log Reader Service"), preserving the order of entries per listener.
+ *
+ * As {@link PaxLogReader}, this service allows incremental reads of the history, so pollers don't have
+ * to copy entire history each time.
+ *
+ * Optionally, the history is mirrored to {@link LogHistoryFile memory-mapped file} and restored from it after
+ * restart.
+ *
  * @since 1.11.0
  */
-public class LogReaderServiceImpl implements LogReaderService {
+public class LogReaderServiceImpl implements PaxLogReader, AutoCloseable {
+
+    // how long new asynchronous delivery waits for the replaced one to deliver its queued entries
+    private static final long DRAIN_TIMEOUT_MS = 5000L;
 
-    private final List<LogListener> m_listeners = new CopyOnWriteArrayList<LogListener>();
+    private final List<Delivery> m_listeners = new CopyOnWriteArrayList<>();
 
-    private final Deque<LogEntry> m_entries;
+    // 0 means synchronous delivery
+    private int m_queueSize = 0;
+    private OverflowPolicy m_overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    // dropped entries of listeners that were already removed
+    private final AtomicLong m_dropped = new AtomicLong();
+
+    // null if history is disabled (max entries <= 0)
+    private volatile LogHistory m_entries;
     private int m_maxEntries;
+    // 0 means the history is limited only by number of entries
+    private long m_maxBytes;
+    // whether exceptions are kept in the history as ThrowableSnapshot
+    private volatile boolean m_compactExceptions;
+    // persistent copy of the history, null if disabled
+    private volatile LogHistoryFile m_historyFile;
+    // entries are restored only from first history file, later the file only mirrors the history
+    private boolean m_historyRestored;
     // Internal logger for diagnostic purposes
     private final PaxLogger m_logger;
 
+    // monitor and number of threads waiting in getLogSince() for new entries
+    private final Object m_newEntries = new Object();
+    private final AtomicInteger m_waiting = new AtomicInteger();
+
     public LogReaderServiceImpl(int m_maxEntries, PaxLogger logger) {
         this.m_maxEntries = m_maxEntries;
-        this.m_entries = new LinkedList<>();
+        this.m_entries = m_maxEntries > 0 ? new LogHistory(m_maxEntries) : null;
         this.m_logger = logger;
     }
 
     @Override
-    public void addLogListener(LogListener listener) {
-        m_listeners.add(listener);
+    public synchronized void addLogListener(LogListener listener) {
+        m_listeners.add(delivery(listener, null));
     }
 
     @Override
-    public void removeLogListener(LogListener listener) {
-        m_listeners.remove(listener);
+    public synchronized void removeLogListener(LogListener listener) {
+        for (Delivery delivery : m_listeners) {
+            if (delivery.m_listener.equals(listener)) {
+                m_listeners.remove(delivery);
+                m_dropped.addAndGet(delivery.close());
+                return;
+            }
+        }
     }
 
     @Override
     public Enumeration<LogEntry> getLog() {
-        // Need to do a copy to avoid a ConcurrentModificationException if
-        // a new event is logged while the enumeration is iterated.
-        synchronized (m_entries) {
-            return Collections.enumeration(new ArrayList<LogEntry>(m_entries));
+        LogHistory entries = m_entries;
+        if (entries == null) {
+            return Collections.emptyEnumeration();
+        }
+        return Collections.enumeration(entries.snapshot());
+    }
+
+    @Override
+    public List<LogEntry> getLog(PaxLogQuery query) {
+        LogHistory entries = m_entries;
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        return entries.query(query);
+    }
+
+    @Override
+    public List<LogEntry> getLogSince(long sequence, int maxEntries) {
+        LogHistory entries = m_entries;
+        if (entries == null || maxEntries <= 0) {
+            return Collections.emptyList();
+        }
+        return entries.since(sequence, maxEntries);
+    }
+
+    @Override
+    public List<LogEntry> getLogSince(long sequence, int maxEntries, long timeout, TimeUnit unit) throws InterruptedException {
+        List<LogEntry> result = getLogSince(sequence, maxEntries);
+        if (!result.isEmpty() || timeout <= 0L) {
+            return result;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        m_waiting.incrementAndGet();
+        try {
+            synchronized (m_newEntries) {
+                while (result.isEmpty()) {
+                    result = getLogSince(sequence, maxEntries);
+                    long remaining = deadline - System.nanoTime();
+                    if (!result.isEmpty() || remaining <= 0L) {
+                        break;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(m_newEntries, remaining);
+                }
+            }
+        } finally {
+            m_waiting.decrementAndGet();
         }
+        return result;
+    }
+
+    /**
+     * Whether entries passed to {@link #fireEvent(LogEntry)} are kept in the history or delivered to
+     * any {@link LogListener}. If not, backends don't have to create the entries at all.
+     * @return
+     */
+    public boolean hasConsumers() {
+        return m_entries != null || !m_listeners.isEmpty();
     }
 
     public void fireEvent(LogEntry entry) {
-        synchronized (m_entries) {
-            m_entries.addFirst(entry);
-            cleanUp();
+        LogHistory entries = m_entries;
+        if (entries != null) {
+            LogHistoryFile file = m_historyFile;
+            if (file != null) {
+                file.append(entry);
+            }
+            if (m_compactExceptions && entry.getException() != null && entry instanceof LogEntryImpl) {
+                // listeners still get original exception
+                LogEntryImpl compact = ((LogEntryImpl) entry).withException(ThrowableSnapshot.of(entry.getException()));
+                entries.add(compact);
+                ((LogEntryImpl) entry).setSequence(compact.getSequence());
+            } else {
+                entries.add(entry);
+            }
+            if (m_waiting.get() > 0) {
+                synchronized (m_newEntries) {
+                    m_newEntries.notifyAll();
+                }
+            }
+        }
+        for (Delivery delivery : m_listeners) {
+            delivery.deliver(entry);
+        }
+    }
+
+    /**
+     * Switches between synchronous (when {@code queueSize <= 0}) and asynchronous delivery of entries to
+     * {@link LogListener listeners}. Entries already queued for existing listeners are delivered by old
+     * delivery threads and new delivery starts only after that, so a listener is never called concurrently and
+     * gets the entries in order. New delivery thread waits at most {@link #DRAIN_TIMEOUT_MS} for the old one.
+     * When switching to synchronous delivery, logging threads don't wait at all - they keep queueing the entries
+     * until old delivery thread finds its queue empty and hands the listener over.
+     * @param queueSize
+     * @param overflowPolicy what to do when listener's queue is full
+     */
+    public synchronized void setAsyncDispatch(int queueSize, OverflowPolicy overflowPolicy) {
+        int size = Math.max(queueSize, 0);
+        OverflowPolicy policy = overflowPolicy == null ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
+        if (size == m_queueSize && policy == m_overflowPolicy) {
+            return;
+        }
+        boolean wasAsync = m_queueSize > 0;
+        m_queueSize = size;
+        m_overflowPolicy = policy;
+        if (!wasAsync && size == 0) {
+            // overflow policy doesn't matter for synchronous delivery
+            return;
         }
-        final List<LogListener> listeners = m_listeners;
-        for (LogListener listener : listeners) {
-            fire(listener, entry);
+        for (int i = 0; i < m_listeners.size(); i++) {
+            Delivery previous = m_listeners.get(i);
+            Delivery delivery = delivery(previous.m_listener, previous);
+            m_listeners.set(i, delivery);
+            if (size > 0) {
+                previous.finish();
+            } else {
+                previous.handOver(delivery);
+            }
+        }
+    }
+
+    /**
+     * Number of entries waiting in all the listener queues
+     * @return
+     */
+    public long getQueuedCount() {
+        long queued = 0L;
+        for (Delivery delivery : m_listeners) {
+            queued += delivery.queued();
+        }
+        return queued;
+    }
+
+    /**
+     * Number of entries that were not delivered to listeners because of full queues (or stopped delivery)
+     * @return
+     */
+    public long getDroppedCount() {
+        long dropped = m_dropped.get();
+        for (Delivery delivery : m_listeners) {
+            dropped += delivery.dropped();
+        }
+        return dropped;
+    }
+
+    /**
+     * Stops delivery threads of all the listeners
+     */
+    @Override
+    public synchronized void close() {
+        for (Delivery delivery : m_listeners) {
+            m_dropped.addAndGet(delivery.close());
+        }
+        m_listeners.clear();
+        closeHistoryFile();
+    }
+
+    private Delivery delivery(LogListener listener, Delivery previous) {
+        return m_queueSize > 0 ? new AsyncDelivery(listener, previous, m_queueSize, m_overflowPolicy)
+                : new Delivery(listener, previous);
+    }
+
+    /**
+     * Changes the size of the history. Most recent entries are copied to new ring buffer, but entries
+     * logged concurrently with the resize may not be copied.
+     * @param maxSize
+     */
+    public synchronized void setMaxEntries(int maxSize) {
+        if (maxSize == m_maxEntries) {
+            return;
         }
+        m_maxEntries = maxSize;
+        LogHistory previous = m_entries;
+        if (maxSize <= 0) {
+            m_entries = null;
+            closeHistoryFile();
+            return;
+        }
+        LogHistory ring = new LogHistory(maxSize);
+        ring.setMaxBytes(m_maxBytes);
+        if (previous != null) {
+            List<LogEntry> history = previous.snapshot();
+            // snapshot is ordered from the most recent entry
+            for (int i = Math.min(history.size(), maxSize) - 1; i >= 0; i--) {
+                ring.copy(history.get(i));
+            }
+        }
+        m_entries = ring;
     }
 
-    public void setMaxEntries(int maxSize) {
-        synchronized (m_entries) {
-            m_maxEntries = maxSize;
+    /**
+     * Sets memory budget of the history - estimated size of all kept entries. When it's exceeded, oldest entries
+     * are removed, even if there are less than {@code maxEntries} of them.
+     * @param maxBytes {@code 0} (or negative) to limit the history only by number of entries
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        m_maxBytes = Math.max(maxBytes, 0L);
+        LogHistory entries = m_entries;
+        if (entries != null) {
+            entries.setMaxBytes(m_maxBytes);
         }
     }
 
     /**
-     * Trim the log to configured size.
+     * Estimated size of entries kept in the history (tracked only if there's {@link #setMaxBytes(long) budget})
+     * @return
      */
-    private void cleanUp() {
-        // caller must synchronize on m_entries
-        while (m_entries.size() > m_maxEntries) {
-            m_entries.removeLast();
+    public long getHistoryBytes() {
+        LogHistory entries = m_entries;
+        return entries == null ? 0L : entries.getBytes();
+    }
+
+    /**
+     * When enabled, exceptions of entries kept in the history are replaced with {@link ThrowableSnapshot}, so
+     * the history doesn't retain exception objects (and whatever they reference).
+     * @param compactExceptions
+     */
+    public void setCompactExceptions(boolean compactExceptions) {
+        m_compactExceptions = compactExceptions;
+    }
+
+    /**
+     * Mirrors the history (using its current max size) in memory-mapped file. When called for the first time,
+     * entries found in the file are restored into the history (with new sequence numbers, without bundles and
+     * placed before the entries logged so far, which get new sequence numbers as well). Then the entries in
+     * the history are written to the file.
+     * @param file {@code null} to stop writing to the file
+     * @throws IOException
+     */
+    public synchronized void setHistoryFile(File file) throws IOException {
+        LogHistoryFile previous = m_historyFile;
+        if (previous != null && file != null && previous.getFile().equals(file)
+                && previous.getCapacity() == m_maxEntries) {
+            return;
+        }
+        closeHistoryFile();
+        LogHistory current = m_entries;
+        if (file == null || current == null) {
+            return;
+        }
+
+        LogHistoryFile historyFile = new LogHistoryFile(file, m_maxEntries, !m_historyRestored);
+        List<LogEntry> logged = current.snapshot();
+        if (!m_historyRestored) {
+            m_historyRestored = true;
+            LogHistory ring = new LogHistory(m_maxEntries);
+            ring.setMaxBytes(m_maxBytes);
+            for (LogHistoryFile.Record record : historyFile.getRestored()) {
+                ring.add(record.toLogEntry());
+            }
+            // snapshot is ordered from the most recent entry. Entries logged so far need sequence numbers greater
+            // than restored ones, so they're added as copies, not to change entries already passed to listeners
+            for (int i = logged.size() - 1; i >= 0; i--) {
+                LogEntry entry = logged.get(i);
+                ring.add(entry instanceof LogEntryImpl ? ((LogEntryImpl) entry).withException(entry.getException()) : entry);
+            }
+            m_entries = ring;
+        }
+        for (int i = logged.size() - 1; i >= 0; i--) {
+            historyFile.append(logged.get(i));
+        }
+        m_historyFile = historyFile;
+    }
+
+    private void closeHistoryFile() {
+        LogHistoryFile file = m_historyFile;
+        m_historyFile = null;
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                if (m_logger != null) {
+                    m_logger.error("Problem closing log history file " + file.getFile(), e);
+                }
+            }
         }
     }
 
@@ -111,4 +405,285 @@ public class LogReaderServiceImpl implements LogReaderService {
         }
     }
 
+    /**
+     * Policy used when asynchronous listener can't keep up with logged entries
+     */
+    public enum OverflowPolicy {
+        /** Oldest queued entry is removed to make room for new one */
+        DROP_OLDEST,
+        /** New entry is not delivered to the listener */
+        DROP_NEWEST,
+        /** Logging thread waits for free space in listener's queue */
+        BLOCK;
+
+        /**
+         * Parses configuration value like {@code drop-oldest}, {@code DROP_NEWEST} or {@code block}
+         * @param value
+         * @param defaultPolicy returned for {@code null} or unknown value
+         * @return
+         */
+        public static OverflowPolicy parse(String value, OverflowPolicy defaultPolicy) {
+            if (value == null) {
+                return defaultPolicy;
+            }
+            try {
+                return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return defaultPolicy;
+            }
+        }
+    }
+
+    /**
+     * Synchronous delivery of entries to single listener
+     */
+    private class Delivery {
+
+        protected final LogListener m_listener;
+        // replaced delivery of the same listener, which may still deliver its queued entries
+        private volatile Delivery m_previous;
+        // read-locked by logging threads passing entries to replaced delivery, write-locked by its thread
+        // when it has no more entries and hands the listener over
+        private final ReadWriteLock m_handOverLock = new ReentrantReadWriteLock();
+
+        Delivery(LogListener listener, Delivery previous) {
+            m_listener = listener;
+            m_previous = previous;
+        }
+
+        void deliver(LogEntry entry) {
+            if (m_previous != null) {
+                Lock lock = m_handOverLock.readLock();
+                lock.lock();
+                try {
+                    Delivery previous = m_previous;
+                    if (previous != null) {
+                        // replaced asynchronous delivery has queued entries, so this one is queued after them
+                        previous.deliver(entry);
+                        return;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            fire(m_listener, entry);
+        }
+
+        /**
+         * Called by the thread of replaced delivery when its queue is empty.
+         * @param previous replaced delivery
+         * @param queue queue of replaced delivery
+         * @return {@code true} if this delivery calls the listener from now on, {@code false} if there are
+         * new entries in the queue
+         */
+        boolean takeOver(Delivery previous, BlockingQueue<Object> queue) {
+            Lock lock = m_handOverLock.writeLock();
+            lock.lock();
+            try {
+                if (!queue.isEmpty()) {
+                    return false;
+                }
+                if (m_previous == previous) {
+                    m_previous = null;
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Waits until replaced delivery of the same listener delivers its queued entries.
+         */
+        protected void awaitPrevious() {
+            if (m_previous != null) {
+                synchronized (this) {
+                    Delivery previous = m_previous;
+                    if (previous != null) {
+                        m_dropped.addAndGet(previous.awaitTermination());
+                        m_previous = null;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Waits (at most {@link #DRAIN_TIMEOUT_MS}) until {@link #finish() finished} delivery delivers all
+         * queued entries and stops it.
+         * @return number of entries dropped by this delivery
+         */
+        long awaitTermination() {
+            Delivery previous = m_previous;
+            return previous == null ? 0L : previous.awaitTermination();
+        }
+
+        long queued() {
+            Delivery previous = m_previous;
+            return previous == null ? 0L : previous.queued();
+        }
+
+        long dropped() {
+            Delivery previous = m_previous;
+            return previous == null ? 0L : previous.dropped();
+        }
+
+        /**
+         * Stops accepting new entries, but delivers already queued ones
+         */
+        void finish() {
+            Delivery previous = m_previous;
+            if (previous != null) {
+                previous.finish();
+            }
+        }
+
+        /**
+         * Keeps accepting new entries (passed by {@code successor}) until the queue is empty and then lets
+         * {@code successor} deliver the entries synchronously.
+         * @param successor
+         */
+        void handOver(Delivery successor) {
+        }
+
+        /**
+         * Stops the delivery immediately
+         * @return number of dropped entries (including not delivered queued ones)
+         */
+        long close() {
+            Delivery previous = m_previous;
+            m_previous = null;
+            return previous == null ? 0L : previous.close();
+        }
+    }
+
+    /**
+     * Asynchronous delivery of entries to single listener through bounded queue and dedicated thread.
+     */
+    private class AsyncDelivery extends Delivery implements Runnable {
+
+        // wakes up the delivery thread after finish() or handOver()
+        private final Object m_wakeUp = new Object();
+
+        private final BlockingQueue<Object> m_queue;
+        private final OverflowPolicy m_policy;
+        private final AtomicLong m_droppedCount = new AtomicLong();
+        private final Thread m_thread;
+        private volatile boolean m_finished;
+        private volatile boolean m_closed;
+        // synchronous delivery waiting for this delivery to become idle
+        private volatile Delivery m_successor;
+
+        AsyncDelivery(LogListener listener, Delivery previous, int queueSize, OverflowPolicy policy) {
+            super(listener, previous);
+            m_queue = new ArrayBlockingQueue<>(queueSize);
+            m_policy = policy;
+            m_thread = new Thread(this, "pax-logging-log-listener-" + listener.getClass().getName());
+            m_thread.setDaemon(true);
+            m_thread.start();
+        }
+
+        @Override
+        void deliver(LogEntry entry) {
+            if (m_finished) {
+                m_droppedCount.incrementAndGet();
+                return;
+            }
+            if (m_policy == OverflowPolicy.BLOCK && Thread.currentThread() != m_thread) {
+                try {
+                    m_queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    m_droppedCount.incrementAndGet();
+                }
+            } else if (m_policy == OverflowPolicy.DROP_OLDEST) {
+                while (!m_queue.offer(entry)) {
+                    if (m_queue.poll() != null) {
+                        m_droppedCount.incrementAndGet();
+                    }
+                }
+            } else if (!m_queue.offer(entry)) {
+                // DROP_NEWEST or listener logging from its own delivery thread with BLOCK policy
+                m_droppedCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            awaitPrevious();
+            try {
+                while (!m_closed) {
+                    Object entry = m_queue.poll();
+                    if (entry == null) {
+                        // after finish(), only the remaining entries are delivered
+                        if (m_finished) {
+                            break;
+                        }
+                        Delivery successor = m_successor;
+                        if (successor != null && successor.takeOver(this, m_queue)) {
+                            m_finished = true;
+                            m_dropped.addAndGet(close());
+                            break;
+                        }
+                        entry = m_queue.poll(1, TimeUnit.SECONDS);
+                    }
+                    if (entry != null && entry != m_wakeUp) {
+                        fire(m_listener, (LogEntry) entry);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+        @Override
+        long queued() {
+            return m_queue.size();
+        }
+
+        @Override
+        long awaitTermination() {
+            if (Thread.currentThread() != m_thread) {
+                try {
+                    m_thread.join(DRAIN_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return close();
+        }
+
+        @Override
+        long dropped() {
+            return m_droppedCount.get();
+        }
+
+        @Override
+        void finish() {
+            m_finished = true;
+            // if the queue is full, the thread isn't waiting and checks m_finished before waiting again
+            m_queue.offer(m_wakeUp);
+        }
+
+        @Override
+        void handOver(Delivery successor) {
+            m_successor = successor;
+            m_queue.offer(m_wakeUp);
+        }
+
+        @Override
+        synchronized long close() {
+            if (m_closed) {
+                // already counted
+                return 0L;
+            }
+            long previouslyDropped = super.close();
+            m_finished = true;
+            m_closed = true;
+            if (Thread.currentThread() != m_thread && m_thread.isAlive()) {
+                m_thread.interrupt();
+            }
+            m_queue.remove(m_wakeUp);
+            return previouslyDropped + m_droppedCount.get() + m_queue.size();
+        }
+    }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.ops4j.pax.logging.PaxLogger;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+
+/**
+ * <p>Bounded cache of backend specific {@link PaxLogger loggers} keyed by (bundle id, category, fqcn, formatting).
+ * Backends use it for every {@code LogService.log()} call and for R7 {@code getLogger()} methods, which
+ * otherwise create new logger each time. {@link org.ops4j.pax.logging.PaxLoggingService#getLogger} is not cached,
+ * because its callers keep the loggers themselves.</p>
+ *
+ * <p>Loggers of uninstalled bundles are removed (the cache is a {@link SynchronousBundleListener}) and
+ * backends should {@link #clear()} the cache when their logger context is reconfigured. When the cache is full,
+ * a logger not used since previous eviction is removed ("second chance" approximation of LRU).</p>
+ *
+ * @param <L> type of cached logger
+ */
+public class LoggerCache<L extends PaxLogger> implements SynchronousBundleListener {
+
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private final ConcurrentMap<Key, Entry<L>> m_loggers = new ConcurrentHashMap<>();
+    private final Factory<L> m_factory;
+    private final int m_maxSize;
+
+    public LoggerCache(Factory<L> factory) {
+        this(factory, DEFAULT_MAX_SIZE);
+    }
+
+    public LoggerCache(Factory<L> factory, int maxSize) {
+        m_factory = factory;
+        m_maxSize = maxSize;
+    }
+
+    /**
+     * Returns cached logger or creates new one using {@link Factory}.
+     * @param bundle
+     * @param category
+     * @param fqcn
+     * @param printfFormatting
+     * @return
+     */
+    public L getLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+        Key key = new Key(bundle == null ? -1L : bundle.getBundleId(), category, fqcn, printfFormatting);
+        Entry<L> entry = m_loggers.get(key);
+        if (entry != null) {
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.logger;
+        }
+
+        L logger = m_factory.create(bundle, category, fqcn, printfFormatting);
+        if (m_loggers.size() >= m_maxSize) {
+            evict();
+        }
+        Entry<L> existing = m_loggers.putIfAbsent(key, new Entry<>(logger));
+        return existing == null ? logger : existing.logger;
+    }
+
+    /**
+     * Removes first logger which wasn't used since previous eviction, clearing the "used" mark of
+     * loggers it passes by.
+     */
+    private void evict() {
+        for (int pass = 0; pass < 2; pass++) {
+            for (Iterator<Entry<L>> it = m_loggers.values().iterator(); it.hasNext(); ) {
+                Entry<L> entry = it.next();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else {
+                    it.remove();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the loggers, so new ones are created for new logger context/configuration.
+     */
+    public void clear() {
+        m_loggers.clear();
+    }
+
+    public int size() {
+        return m_loggers.size();
+    }
+
+    @Override
+    public void bundleChanged(BundleEvent event) {
+        if (event.getType() == BundleEvent.UNINSTALLED) {
+            long bundleId = event.getBundle().getBundleId();
+            m_loggers.keySet().removeIf(key -> key.bundleId == bundleId);
+        }
+    }
+
+    /**
+     * Factory of backend specific loggers
+     * @param <L>
+     */
+    @FunctionalInterface
+    public interface Factory<L extends PaxLogger> {
+        L create(Bundle bundle, String category, String fqcn, boolean printfFormatting);
+    }
+
+    private static final class Entry<L> {
+
+        private final L logger;
+        private volatile boolean referenced;
+
+        Entry(L logger) {
+            this.logger = logger;
+        }
+    }
+
+    private static final class Key {
+
+        private final long bundleId;
+        private final String category;
+        private final String fqcn;
+        private final boolean printfFormatting;
+        private final int hash;
+
+        Key(long bundleId, String category, String fqcn, boolean printfFormatting) {
+            this.bundleId = bundleId;
+            this.category = category;
+            this.fqcn = fqcn;
+            this.printfFormatting = printfFormatting;
+            this.hash = 31 * (31 * (31 * Long.hashCode(bundleId) + Objects.hashCode(category))
+                    + Objects.hashCode(fqcn)) + Boolean.hashCode(printfFormatting);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return bundleId == other.bundleId && hash == other.hash && printfFormatting == other.printfFormatting
+                    && Objects.equals(category, other.category) && Objects.equals(fqcn, other.fqcn);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+}
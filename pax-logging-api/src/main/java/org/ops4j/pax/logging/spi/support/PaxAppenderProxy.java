@@ -17,25 +17,78 @@
  */
 package org.ops4j.pax.logging.spi.support;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.spi.PaxAppender;
+import org.ops4j.pax.logging.spi.PaxBatchAppender;
 import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl.OverflowPolicy;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.Filter;
 import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
 import org.osgi.util.tracker.ServiceTracker;
 
 /**
  * A {@link ServiceTracker} used by bridges specific to given backend.
+ *
+ * Location information is calculated (in logging thread) only if at least one of tracked appenders needs it
+ * (see {@link PaxLoggingConstants#SERVICE_PROPERTY_APPENDER_LOCATION_PROPERTY}).
+ *
+ * With positive queue size, each tracked appender gets its own bounded lock-free queue and a thread that
+ * calls the appender, so slow appenders don't block logging threads. Events are queued as
+ * {@link PaxLoggingEvent#toImmutable() immutable copies}. When an appender is no longer tracked, events already
+ * in its queue are still passed to it (for at most {@link #DRAIN_TIMEOUT_MS}) before the service is released.
+ *
+ * {@link PaxBatchAppender}s get all the events available in their queue at once, or (when called synchronously)
+ * are notified about end of batch signalled by the backend.
  */
 public class PaxAppenderProxy extends ServiceTracker<PaxAppender, PaxAppender> implements PaxAppender {
 
-    private volatile int count = -1;
-    private PaxAppender[] appenders = null;
+    // max number of events passed at once to PaxBatchAppender from its queue
+    private static final int MAX_BATCH_SIZE = 256;
+    // how long removed appender may take to process events from its queue
+    private static final long DRAIN_TIMEOUT_MS = 5000L;
+
+    // appenders and whether they need location are published together
+    private volatile Appenders appenders = new Appenders(-1, new PaxAppender[0], false);
+    // whether appenders without location service property need location information
+    private final boolean defaultNeedsLocation;
+
+    private final String name;
+    // 0 means synchronous calls to the appenders
+    private final int queueSize;
+    private final OverflowPolicy overflowPolicy;
+    // events dropped by queues of appenders that are no longer tracked
+    private final AtomicLong dropped = new AtomicLong();
 
     public PaxAppenderProxy(BundleContext bundleContext, String name) {
+        this(bundleContext, name, 0, null);
+    }
+
+    /**
+     * Creates a proxy calling the appenders asynchronously
+     * @param bundleContext
+     * @param name
+     * @param queueSize size of queue of each appender, {@code 0} for synchronous calls
+     * @param overflowPolicy what to do when appender's queue is full
+     */
+    public PaxAppenderProxy(BundleContext bundleContext, String name, int queueSize, OverflowPolicy overflowPolicy) {
         super(bundleContext, createFilter(bundleContext, name), null);
+        String defaultLocation = bundleContext.getProperty(PaxLoggingConstants.LOGGING_CFG_APPENDER_LOCATION_DEFAULT);
+        defaultNeedsLocation = defaultLocation == null || Boolean.parseBoolean(defaultLocation);
+        this.name = name;
+        this.queueSize = Math.max(queueSize, 0);
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
     }
 
     /**
@@ -58,16 +111,299 @@ public class PaxAppenderProxy extends ServiceTracker<PaxAppender, PaxAppender> i
 
     @Override
     public void doAppend(PaxLoggingEvent event) {
-        if (count != getTrackingCount()) {
-            count = getTrackingCount();
-            appenders = getServices(new PaxAppender[0]);
+        doAppend(event, true);
+    }
+
+    /**
+     * Passes the event to all tracked appenders
+     * @param event
+     * @param endOfBatch whether this is the last event of a batch (e.g., last event processed by asynchronous
+     *        logger thread before waiting for more events). Events logged synchronously are always last
+     *        events of their batches.
+     */
+    public void doAppend(PaxLoggingEvent event, boolean endOfBatch) {
+        Appenders current = appenders;
+        int trackingCount = getTrackingCount();
+        if (current.trackingCount != trackingCount) {
+            current = refresh(trackingCount);
         }
-        if (appenders != null && appenders.length > 0) {
-            // Bug in Karaf, as it expects the source to be available
-            event.getLocationInformation();
-            for (PaxAppender appender : appenders) {
+        if (current.appenders.length > 0) {
+            if (current.needsLocation) {
+                // Bug in Karaf, as it expects the source to be available - appender may access it later
+                // in different thread, so it has to be calculated (and memoized by the event) now
+                event.getLocationInformation();
+            }
+            if (queueSize > 0) {
+                event = event.toImmutable();
+            }
+            for (PaxAppender appender : current.appenders) {
                 appender.doAppend(event);
+                if (endOfBatch && appender instanceof PaxBatchAppender) {
+                    ((PaxBatchAppender) appender).endOfBatch();
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of events waiting in queues of all the appenders
+     * @return
+     */
+    public long getQueuedCount() {
+        long queued = 0L;
+        for (PaxAppender appender : getTracked().values()) {
+            if (appender instanceof QueuedAppender) {
+                queued += ((QueuedAppender) appender).size.get();
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Number of events not passed to appenders because of full queues
+     * @return
+     */
+    public long getDroppedCount() {
+        long count = dropped.get();
+        for (PaxAppender appender : getTracked().values()) {
+            if (appender instanceof QueuedAppender) {
+                count += ((QueuedAppender) appender).dropped.get();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public PaxAppender addingService(ServiceReference<PaxAppender> reference) {
+        PaxAppender appender = super.addingService(reference);
+        if (appender == null || queueSize == 0) {
+            return appender;
+        }
+        return new QueuedAppender(appender);
+    }
+
+    @Override
+    public void removedService(ServiceReference<PaxAppender> reference, PaxAppender service) {
+        if (service instanceof QueuedAppender) {
+            dropped.addAndGet(((QueuedAppender) service).close());
+        }
+        super.removedService(reference, service);
+    }
+
+    private Appenders refresh(int trackingCount) {
+        Map<ServiceReference<PaxAppender>, PaxAppender> tracked = getTracked();
+        boolean location = false;
+        for (ServiceReference<PaxAppender> ref : tracked.keySet()) {
+            Object property = ref.getProperty(PaxLoggingConstants.SERVICE_PROPERTY_APPENDER_LOCATION_PROPERTY);
+            location |= property == null ? defaultNeedsLocation : Boolean.parseBoolean(property.toString());
+        }
+        Appenders current = new Appenders(trackingCount, tracked.values().toArray(new PaxAppender[0]), location);
+        appenders = current;
+        return current;
+    }
+
+    /**
+     * Immutable set of tracked appenders for given tracking count of the tracker
+     */
+    private static class Appenders {
+
+        private final int trackingCount;
+        private final PaxAppender[] appenders;
+        private final boolean needsLocation;
+
+        Appenders(int trackingCount, PaxAppender[] appenders, boolean needsLocation) {
+            this.trackingCount = trackingCount;
+            this.appenders = appenders;
+            this.needsLocation = needsLocation;
+        }
+    }
+
+    /**
+     * Appender that passes events to the delegate through bounded lock-free queue and dedicated thread.
+     */
+    private class QueuedAppender implements PaxAppender {
+
+        private final PaxAppender delegate;
+        private final Queue<PaxLoggingEvent> queue = new ConcurrentLinkedQueue<>();
+        // size of the queue (ConcurrentLinkedQueue.size() is O(n))
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong dropped = new AtomicLong();
+        private final Thread thread;
+        // false when no more events are accepted
+        private volatile boolean running = true;
+        // true when queued events should no longer be passed to the delegate
+        private volatile boolean aborted;
+        private volatile boolean parked;
+        // monitor and number of threads waiting for space in the queue (BLOCK policy)
+        private final Object notFull = new Object();
+        private final AtomicInteger blocked = new AtomicInteger();
+
+        QueuedAppender(PaxAppender delegate) {
+            this.delegate = delegate;
+            thread = new Thread(this::drain, "pax-logging-appender-" + name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void doAppend(PaxLoggingEvent event) {
+            if (!running) {
+                dropped.incrementAndGet();
+                return;
+            }
+            switch (overflowPolicy) {
+                case DROP_NEWEST:
+                    if (size.incrementAndGet() > queueSize) {
+                        size.decrementAndGet();
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    queue.offer(event);
+                    break;
+                case BLOCK:
+                    if (!reserve()) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    queue.offer(event);
+                    break;
+                case DROP_OLDEST:
+                default:
+                    queue.offer(event);
+                    if (size.incrementAndGet() > queueSize) {
+                        // remove oldest events above max size
+                        while (size.get() > queueSize && queue.poll() != null) {
+                            size.decrementAndGet();
+                            dropped.incrementAndGet();
+                        }
+                    }
+            }
+            if (parked) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        /**
+         * Reserves space for one event in the queue (BLOCK policy), waiting while the queue is full. Several
+         * threads may be woken up at once, but only those that win the CAS get the space.
+         * @return {@code false} if the event should be dropped - the appender was closed, the waiting thread
+         * was interrupted or the appender logs from its own thread (it would wait forever)
+         */
+        private boolean reserve() {
+            while (true) {
+                int current = size.get();
+                if (current < queueSize) {
+                    if (size.compareAndSet(current, current + 1)) {
+                        return true;
+                    }
+                    continue;
+                }
+                if (!running || Thread.currentThread() == thread) {
+                    return false;
+                }
+                blocked.incrementAndGet();
+                try {
+                    synchronized (notFull) {
+                        while (size.get() >= queueSize && running) {
+                            notFull.wait();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    blocked.decrementAndGet();
+                }
+            }
+        }
+
+        private void signalNotFull() {
+            if (blocked.get() > 0) {
+                synchronized (notFull) {
+                    notFull.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Loop of the appender thread - passes queued events to the delegate appender. After {@link #close()},
+         * remaining events are passed until the queue is empty.
+         */
+        private void drain() {
+            List<PaxLoggingEvent> batch = delegate instanceof PaxBatchAppender ? new ArrayList<>() : null;
+            while (!aborted) {
+                PaxLoggingEvent event = queue.poll();
+                if (event != null) {
+                    size.decrementAndGet();
+                    try {
+                        if (batch == null) {
+                            signalNotFull();
+                            delegate.doAppend(event);
+                        } else {
+                            // pass all available events at once
+                            batch.add(event);
+                            while (batch.size() < MAX_BATCH_SIZE && (event = queue.poll()) != null) {
+                                size.decrementAndGet();
+                                batch.add(event);
+                            }
+                            signalNotFull();
+                            ((PaxBatchAppender) delegate).doAppend(batch);
+                        }
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    } finally {
+                        if (batch != null) {
+                            batch.clear();
+                        }
+                    }
+                    continue;
+                }
+                if (!running) {
+                    // closed and all events are passed
+                    break;
+                }
+                parked = true;
+                // re-check after publishing parked, so either we see new event or the producer sees parked
+                if (running && queue.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+
+        /**
+         * Stops accepting events and waits until the thread passes queued events to the delegate (or until
+         * {@link #DRAIN_TIMEOUT_MS} elapses), so the delegate isn't called after this method returns.
+         * @return number of dropped events (including not delivered queued ones)
+         */
+        long close() {
+            running = false;
+            LockSupport.unpark(thread);
+            synchronized (notFull) {
+                notFull.notifyAll();
+            }
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(DRAIN_TIMEOUT_MS);
+                    if (thread.isAlive()) {
+                        // don't wait for the rest of the queue, only for the delegate to return
+                        aborted = true;
+                        thread.interrupt();
+                        thread.join(DRAIN_TIMEOUT_MS);
+                    }
+                } catch (InterruptedException e) {
+                    aborted = true;
+                    Thread.currentThread().interrupt();
+                }
+            } else {
+                // delegate is unregistered from its own doAppend()
+                aborted = true;
+            }
+            long count = dropped.get();
+            while (queue.poll() != null) {
+                count++;
             }
+            return count;
         }
     }
 
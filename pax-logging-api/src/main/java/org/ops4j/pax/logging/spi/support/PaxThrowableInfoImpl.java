@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.ops4j.pax.logging.spi.PaxThrowableInfo;
+
+/**
+ * Immutable {@link PaxThrowableInfo} used by backends that have no structured exception representation
+ * of their own.
+ */
+public class PaxThrowableInfoImpl implements PaxThrowableInfo {
+
+    private static final PaxThrowableInfo[] NO_SUPPRESSED = new PaxThrowableInfo[0];
+
+    private final String m_className;
+    private final String m_message;
+    private final StackTraceElement[] m_stackTrace;
+    private final int m_commonFrames;
+    private final PaxThrowableInfo m_cause;
+    private final PaxThrowableInfo[] m_suppressed;
+
+    public PaxThrowableInfoImpl(String className, String message, StackTraceElement[] stackTrace,
+                                int commonFrames, PaxThrowableInfo cause, PaxThrowableInfo[] suppressed) {
+        m_className = className;
+        m_message = message;
+        m_stackTrace = stackTrace == null ? new StackTraceElement[0] : stackTrace;
+        m_commonFrames = commonFrames;
+        m_cause = cause;
+        m_suppressed = suppressed == null || suppressed.length == 0 ? NO_SUPPRESSED : suppressed;
+    }
+
+    /**
+     * Creates structured representation of the {@link Throwable}, its causes and suppressed exceptions.
+     * Circular references are not followed.
+     * @param t
+     * @return {@code null} if {@code t} is {@code null}
+     */
+    public static PaxThrowableInfo of(Throwable t) {
+        if (t == null) {
+            return null;
+        }
+        return of(t, null, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static PaxThrowableInfo of(Throwable t, StackTraceElement[] enclosingTrace, Set<Throwable> seen) {
+        seen.add(t);
+        StackTraceElement[] trace = t.getStackTrace();
+        PaxThrowableInfo cause = null;
+        Throwable c = t.getCause();
+        if (c != null && !seen.contains(c)) {
+            cause = of(c, trace, seen);
+        }
+        PaxThrowableInfo[] suppressed = NO_SUPPRESSED;
+        Throwable[] s = t.getSuppressed();
+        if (s.length > 0) {
+            int count = 0;
+            suppressed = new PaxThrowableInfo[s.length];
+            for (Throwable st : s) {
+                if (!seen.contains(st)) {
+                    suppressed[count++] = of(st, trace, seen);
+                }
+            }
+            if (count < suppressed.length) {
+                PaxThrowableInfo[] copy = new PaxThrowableInfo[count];
+                System.arraycopy(suppressed, 0, copy, 0, count);
+                suppressed = copy;
+            }
+        }
+        return new PaxThrowableInfoImpl(t.getClass().getName(), t.getMessage(), trace,
+                commonFrames(trace, enclosingTrace), cause, suppressed);
+    }
+
+    /**
+     * Counts frames at the end of {@code trace} which are equal to frames at the end of {@code enclosingTrace}
+     * @param trace
+     * @param enclosingTrace
+     * @return
+     */
+    private static int commonFrames(StackTraceElement[] trace, StackTraceElement[] enclosingTrace) {
+        if (enclosingTrace == null) {
+            return 0;
+        }
+        int m = trace.length - 1;
+        int n = enclosingTrace.length - 1;
+        while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+            m--;
+            n--;
+        }
+        return trace.length - 1 - m;
+    }
+
+    @Override
+    public String getClassName() {
+        return m_className;
+    }
+
+    @Override
+    public String getMessage() {
+        return m_message;
+    }
+
+    @Override
+    public StackTraceElement[] getStackTrace() {
+        return m_stackTrace.clone();
+    }
+
+    @Override
+    public int getCommonFrames() {
+        return m_commonFrames;
+    }
+
+    @Override
+    public PaxThrowableInfo getCause() {
+        return m_cause;
+    }
+
+    @Override
+    public PaxThrowableInfo[] getSuppressed() {
+        return m_suppressed.length == 0 ? m_suppressed : m_suppressed.clone();
+    }
+
+    @Override
+    public String toString() {
+        return m_message == null ? m_className : m_className + ": " + m_message;
+    }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>{@link ReadWriteLock} for the {@link org.ops4j.pax.logging.PaxLoggingConstants#USE_LOCKS_OPTIMISTIC} locking
+ * mode, where the read lock is taken for every log operation and the write lock only for reconfiguration.</p>
+ *
+ * <p>Each thread has its own reader indicator, so acquiring the read lock only writes to a field no other
+ * thread writes to (there's no shared counter like in {@link java.util.concurrent.locks.ReentrantReadWriteLock}).
+ * A reader sets its indicator and then checks whether a writer is active. A writer marks itself active and then
+ * waits until the indicators of all other threads are cleared. Both sides write first and read afterwards
+ * (all volatile), so either the reader sees the writer and backs off, or the writer sees the reader and waits for
+ * its log operation to finish - a log operation never runs against a configuration being replaced.</p>
+ *
+ * <p>Both locks are reentrant and the thread holding the write lock may also acquire the read lock (appenders may
+ * log during reconfiguration). {@link Lock#newCondition() Conditions} are not supported.</p>
+ */
+public class PerThreadReadWriteLock implements ReadWriteLock {
+
+    // max time a waiting writer parks between checks of reader indicators
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+    // indicators of all threads that used the read lock
+    private final Queue<Indicator> m_indicators = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Indicator> m_indicator = ThreadLocal.withInitial(this::register);
+
+    // serializes writers and makes readers wait while a writer is active
+    private final ReentrantLock m_writerMutex = new ReentrantLock();
+    private volatile boolean m_writing;
+
+    private final Lock m_readLock = new ReadLock();
+    private final Lock m_writeLock = new WriteLock();
+
+    @Override
+    public Lock readLock() {
+        return m_readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return m_writeLock;
+    }
+
+    private Indicator register() {
+        Indicator indicator = new Indicator(Thread.currentThread());
+        m_indicators.add(indicator);
+        return indicator;
+    }
+
+    /**
+     * Sets reader indicator of current thread if there's no active writer (or current thread is the writer).
+     * @param indicator
+     * @return
+     */
+    private boolean tryEnter(Indicator indicator) {
+        indicator.depth = 1;
+        if (!m_writing || m_writerMutex.isHeldByCurrentThread()) {
+            return true;
+        }
+        indicator.depth = 0;
+        return false;
+    }
+
+    /**
+     * Waits until indicators of all threads except current one are cleared.
+     * @param deadline {@link System#nanoTime()} after which the wait is abandoned, ignored if {@code timed} is false
+     * @param timed
+     * @param interruptible
+     * @return {@code false} if the time elapsed
+     * @throws InterruptedException
+     */
+    private boolean awaitReaders(long deadline, boolean timed, boolean interruptible) throws InterruptedException {
+        Indicator own = m_indicator.get();
+        for (Iterator<Indicator> it = m_indicators.iterator(); it.hasNext(); ) {
+            Indicator indicator = it.next();
+            if (indicator == own) {
+                continue;
+            }
+            Thread owner = indicator.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                // thread has terminated (outside of log operation) - it won't use its indicator again
+                it.remove();
+                continue;
+            }
+            int spins = 0;
+            while (indicator.depth != 0) {
+                if (interruptible && Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (timed && remaining <= 0L) {
+                    return false;
+                }
+                if (++spins < 64) {
+                    Thread.onSpinWait();
+                } else if (spins < 128) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(this, timed ? Math.min(remaining, MAX_PARK_NANOS) : MAX_PARK_NANOS);
+                }
+            }
+        }
+        return true;
+    }
+
+    private class ReadLock implements Lock {
+
+        @Override
+        public void lock() {
+            Indicator indicator = m_indicator.get();
+            if (indicator.depth > 0) {
+                indicator.depth++;
+                return;
+            }
+            while (!tryEnter(indicator)) {
+                // wait for the writer to finish
+                m_writerMutex.lock();
+                m_writerMutex.unlock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            Indicator indicator = m_indicator.get();
+            if (indicator.depth > 0) {
+                indicator.depth++;
+                return;
+            }
+            while (!tryEnter(indicator)) {
+                m_writerMutex.lockInterruptibly();
+                m_writerMutex.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            Indicator indicator = m_indicator.get();
+            if (indicator.depth > 0) {
+                indicator.depth++;
+                return true;
+            }
+            return tryEnter(indicator);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            Indicator indicator = m_indicator.get();
+            if (indicator.depth > 0) {
+                indicator.depth++;
+                return true;
+            }
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            while (!tryEnter(indicator)) {
+                if (!m_writerMutex.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+                m_writerMutex.unlock();
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            Indicator indicator = m_indicator.get();
+            if (indicator.depth == 0) {
+                throw new IllegalMonitorStateException("Read lock is not held by current thread");
+            }
+            indicator.depth--;
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class WriteLock implements Lock {
+
+        @Override
+        public void lock() {
+            m_writerMutex.lock();
+            if (m_writerMutex.getHoldCount() == 1) {
+                m_writing = true;
+                try {
+                    awaitReaders(0L, false, false);
+                } catch (InterruptedException never) {
+                    // not thrown when not interruptible
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            m_writerMutex.lockInterruptibly();
+            if (m_writerMutex.getHoldCount() == 1) {
+                m_writing = true;
+                try {
+                    awaitReaders(0L, false, true);
+                } catch (InterruptedException e) {
+                    unlock();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!m_writerMutex.tryLock()) {
+                return false;
+            }
+            if (m_writerMutex.getHoldCount() == 1) {
+                m_writing = true;
+                try {
+                    if (!awaitReaders(System.nanoTime(), true, false)) {
+                        unlock();
+                        return false;
+                    }
+                } catch (InterruptedException never) {
+                    // not thrown when not interruptible
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            if (!m_writerMutex.tryLock(time, unit)) {
+                return false;
+            }
+            if (m_writerMutex.getHoldCount() == 1) {
+                m_writing = true;
+                boolean acquired = false;
+                try {
+                    acquired = awaitReaders(deadline, true, true);
+                } finally {
+                    if (!acquired) {
+                        unlock();
+                    }
+                }
+                return acquired;
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if (m_writerMutex.isHeldByCurrentThread() && m_writerMutex.getHoldCount() == 1) {
+                m_writing = false;
+            }
+            m_writerMutex.unlock();
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reader indicator of single thread - number of read locks held by the thread.
+     */
+    private static class Indicator {
+        final WeakReference<Thread> owner;
+        volatile int depth;
+
+        Indicator(Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+/**
+ * <p>Detached copy of a {@link Throwable} kept in LogReaderService history. Original exceptions may
+ * hold references to arbitrary application objects (and through their classes - to class loaders of
+ * uninstalled bundles). The snapshot keeps only class name, message and stack trace of the original
+ * exception, its causes and suppressed exceptions.</p>
+ *
+ * <p>{@link #toString()} and {@link #printStackTrace()} print the snapshot like the original exception.</p>
+ */
+public class ThrowableSnapshot extends Throwable {
+
+    private static final long serialVersionUID = 1L;
+
+    // protection against cyclic or very long chains of causes
+    private static final int MAX_DEPTH = 32;
+
+    private final String m_className;
+
+    private ThrowableSnapshot(Throwable t, int depth) {
+        super(t.getMessage(), snapshot(t.getCause(), depth + 1), true, true);
+        m_className = t.getClass().getName();
+        setStackTrace(t.getStackTrace());
+        for (Throwable suppressed : t.getSuppressed()) {
+            ThrowableSnapshot s = snapshot(suppressed, depth + 1);
+            if (s != null) {
+                addSuppressed(s);
+            }
+        }
+    }
+
+    /**
+     * Recreates a snapshot from stored data (see {@link LogHistoryFile})
+     * @param className
+     * @param message
+     * @param stackTrace
+     * @param cause
+     */
+    ThrowableSnapshot(String className, String message, StackTraceElement[] stackTrace, ThrowableSnapshot cause) {
+        super(message, cause, true, true);
+        m_className = className;
+        setStackTrace(stackTrace);
+    }
+
+    /**
+     * Creates a snapshot of given exception (or returns it if it's already a snapshot)
+     * @param t
+     * @return
+     */
+    public static ThrowableSnapshot of(Throwable t) {
+        return snapshot(t, 0);
+    }
+
+    private static ThrowableSnapshot snapshot(Throwable t, int depth) {
+        if (t == null || depth >= MAX_DEPTH) {
+            return null;
+        }
+        if (t instanceof ThrowableSnapshot) {
+            return (ThrowableSnapshot) t;
+        }
+        return new ThrowableSnapshot(t, depth);
+    }
+
+    /**
+     * Class name of the original exception
+     * @return
+     */
+    public String getClassName() {
+        return m_className;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        // stack trace is copied from the original exception
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        String message = getLocalizedMessage();
+        return message != null ? m_className + ": " + message : m_className;
+    }
+
+}
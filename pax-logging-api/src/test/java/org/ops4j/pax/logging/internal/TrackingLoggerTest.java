@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.internal;
+
+import org.junit.Test;
+import org.ops4j.pax.logging.ConfigurationEpoch;
+import org.ops4j.pax.logging.PaxLogger;
+import org.ops4j.pax.logging.PaxLoggingService;
+import org.osgi.framework.Bundle;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.*;
+
+public class TrackingLoggerTest {
+
+    @Test
+    public void cachedLevelIsUsedUntilNextEpoch() {
+        PaxLogger delegate = infoLogger();
+        TrackingLogger logger = new TrackingLogger(service(delegate), "test", null, null);
+
+        ConfigurationEpoch.next(true);
+        assertFalse(logger.isDebugEnabled());
+        assertTrue(logger.isInfoEnabled());
+        logger.debug("message");
+        logger.debug("message {}", "arg");
+        verify(delegate, never()).debug(anyString());
+        verify(delegate, never()).debug(anyString(), any(Object.class));
+        verify(delegate, times(1)).isDebugEnabled();
+
+        // reconfiguration
+        when(delegate.isDebugEnabled()).thenReturn(true);
+        assertFalse(logger.isDebugEnabled());
+        ConfigurationEpoch.next(true);
+        assertTrue(logger.isDebugEnabled());
+        logger.debug("message");
+        verify(delegate, times(1)).debug("message");
+    }
+
+    @Test
+    public void levelIsNotCachedWithGlobalFilters() {
+        PaxLogger delegate = infoLogger();
+        TrackingLogger logger = new TrackingLogger(service(delegate), "test", null, null);
+
+        ConfigurationEpoch.next(false);
+        assertFalse(logger.isDebugEnabled());
+        when(delegate.isDebugEnabled()).thenReturn(true);
+        assertTrue(logger.isDebugEnabled());
+        logger.debug("message");
+        verify(delegate, times(1)).debug("message");
+    }
+
+    @Test
+    public void cachedLevelIsInvalidatedWhenDelegateIsSwitched() {
+        PaxLogger info = infoLogger();
+        TrackingLogger logger = new TrackingLogger(service(info), "test", null, null);
+
+        ConfigurationEpoch.next(true);
+        assertFalse(logger.isDebugEnabled());
+
+        PaxLogger debug = infoLogger();
+        when(debug.isDebugEnabled()).thenReturn(true);
+        logger.added(service(debug));
+        assertTrue(logger.isDebugEnabled());
+    }
+
+    private PaxLogger infoLogger() {
+        PaxLogger delegate = mock(PaxLogger.class);
+        when(delegate.isInfoEnabled()).thenReturn(true);
+        when(delegate.isWarnEnabled()).thenReturn(true);
+        when(delegate.isErrorEnabled()).thenReturn(true);
+        when(delegate.isFatalEnabled()).thenReturn(true);
+        return delegate;
+    }
+
+    private PaxLoggingService service(PaxLogger delegate) {
+        PaxLoggingService service = mock(PaxLoggingService.class);
+        when(service.getLogger(nullable(Bundle.class), anyString(), nullable(String.class))).thenReturn(delegate);
+        return service;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import org.junit.Test;
+import org.osgi.service.log.LogLevel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BackendSupportTest {
+
+    @Test
+    public void minimumLevel() {
+        LogLevel all = BackendSupport.convertMinimumR7LogLevel("ALL", LogLevel.INFO);
+        assertEquals(LogLevel.TRACE, all);
+        for (LogLevel level : LogLevel.values()) {
+            assertTrue(all.implies(level));
+        }
+        assertEquals(LogLevel.WARN, BackendSupport.convertMinimumR7LogLevel("warn", LogLevel.INFO));
+        assertEquals(LogLevel.AUDIT, BackendSupport.convertMinimumR7LogLevel("AUDIT", LogLevel.INFO));
+        assertEquals(LogLevel.INFO, BackendSupport.convertMinimumR7LogLevel("unknown", LogLevel.INFO));
+        assertNull(BackendSupport.convertMinimumR7LogLevel("OFF", LogLevel.INFO));
+        assertNull(BackendSupport.convertMinimumR7LogLevel("NONE", LogLevel.INFO));
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+import org.osgi.service.log.LogLevel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EventAdminTrackerTest {
+
+    private static final int ALL = (1 << LogLevel.values().length) - 1;
+
+    @Test
+    public void subscribedLevels() {
+        assertEquals(ALL, EventAdminTracker.subscribedLevels("*"));
+        assertEquals(ALL, EventAdminTracker.subscribedLevels("org/osgi/*"));
+        assertEquals(ALL, EventAdminTracker.subscribedLevels("org/osgi/service/log/LogEntry/*"));
+        assertEquals(1 << LogLevel.ERROR.ordinal(),
+                EventAdminTracker.subscribedLevels("org/osgi/service/log/LogEntry/LOG_ERROR"));
+        assertEquals((1 << LogLevel.WARN.ordinal()) | (1 << LogLevel.TRACE.ordinal()),
+                EventAdminTracker.subscribedLevels(new String[] {
+                        "org/osgi/service/log/LogEntry/LOG_WARNING", "org/osgi/service/log/LogEntry/LOG_OTHER" }));
+        assertEquals(0, EventAdminTracker.subscribedLevels(Arrays.asList("org/osgi/framework/*", "org/ops4j/*")));
+        assertEquals(0, EventAdminTracker.subscribedLevels(null));
+    }
+
+    @Test
+    public void eventsWithoutEventAdminAreBounded() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        EventAdminTracker tracker = new EventAdminTracker(context);
+        try {
+            for (int i = 0; i < 100; i++) {
+                post(tracker, "m" + i);
+            }
+            assertEquals(50, tracker.getDroppedCount());
+
+            CountDownLatch delivered = new CountDownLatch(50);
+            List<String> messages = Collections.synchronizedList(new ArrayList<>());
+            EventAdmin eventAdmin = mock(EventAdmin.class);
+            doAnswer(invocation -> {
+                messages.add((String) invocation.getArgument(0, Event.class).getProperty("message"));
+                delivered.countDown();
+                return null;
+            }).when(eventAdmin).postEvent(any(Event.class));
+            available(context, tracker, eventAdmin);
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 50; i++) {
+                assertEquals("m" + (i + 50), messages.get(i));
+            }
+        } finally {
+            tracker.close();
+        }
+    }
+
+    @Test
+    public void burstOfEventsIsDeliveredInOrder() throws Exception {
+        BundleContext context = mock(BundleContext.class);
+        EventAdminTracker tracker = new EventAdminTracker(context);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch delivered = new CountDownLatch(1000);
+            AtomicBoolean failed = new AtomicBoolean();
+            List<String> messages = Collections.synchronizedList(new ArrayList<>());
+            EventAdmin eventAdmin = mock(EventAdmin.class);
+            doAnswer(invocation -> {
+                release.await();
+                String message = (String) invocation.getArgument(0, Event.class).getProperty("message");
+                if ("m500".equals(message) && failed.compareAndSet(false, true)) {
+                    // Event Admin being unregistered - the event is delivered again
+                    throw new IllegalStateException();
+                }
+                messages.add(message);
+                delivered.countDown();
+                return null;
+            }).when(eventAdmin).postEvent(any(Event.class));
+            available(context, tracker, eventAdmin);
+
+            // Event Admin is blocked, but available, so more than 50 events are kept
+            for (int i = 0; i < 1000; i++) {
+                post(tracker, "m" + i);
+            }
+            release.countDown();
+
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            assertEquals(0, tracker.getDroppedCount());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("m" + i, messages.get(i));
+            }
+        } finally {
+            tracker.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void available(BundleContext context, EventAdminTracker tracker, EventAdmin eventAdmin) {
+        ServiceReference<EventAdmin> reference = mock(ServiceReference.class);
+        when(context.getService(reference)).thenReturn(eventAdmin);
+        tracker.addingService(reference);
+    }
+
+    private static void post(EventAdminTracker tracker, String message) {
+        tracker.postEvent(null, LogLevel.INFO, new LogEntryImpl(null, null, null, LogLevel.INFO, message, null),
+                message, null, null, null);
+    }
+
+}
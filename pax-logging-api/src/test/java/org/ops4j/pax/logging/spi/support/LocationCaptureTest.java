@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LocationCaptureTest {
+
+    @Test
+    public void configuration() {
+        assertNull(LocationCapture.parse(null));
+        assertNull(LocationCapture.parse(" , "));
+
+        Bundle bundle = mock(Bundle.class);
+        when(bundle.getSymbolicName()).thenReturn("org.example.bundle");
+        LocationCapture capture = LocationCapture.parse("org.example.service., bundle:org.example.bundle");
+        assertTrue(capture.matches("org.example.service.Service", null));
+        assertFalse(capture.matches("org.example.other.Service", null));
+        assertTrue(capture.matches("org.example.other.Service", bundle));
+        assertTrue(LocationCapture.parse("*").matches("any", null));
+    }
+
+    @Test
+    public void location() {
+        StackTraceElement location = Facade.log();
+        assertEquals(LocationCaptureTest.class.getName(), location.getClassName());
+        assertEquals("location", location.getMethodName());
+        assertNull(LocationCapture.locate("org.example.NotOnStack"));
+    }
+
+    private static class Facade {
+        static StackTraceElement log() {
+            return doLog();
+        }
+
+        private static StackTraceElement doLog() {
+            return LocationCapture.locate(Facade.class.getName());
+        }
+    }
+
+}
@@ -17,15 +17,30 @@
  */
 package org.ops4j.pax.logging.spi.support;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
+import org.ops4j.pax.logging.PaxLogQuery;
+import org.osgi.framework.Bundle;
 import org.osgi.service.log.LogEntry;
 import org.osgi.service.log.LogLevel;
 import org.osgi.service.log.LogListener;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class LogReaderTest {
 
@@ -48,6 +63,495 @@ public class LogReaderTest {
         assertEquals(4, listener.entries.size());
     }
 
+    @Test
+    public void historyIsLimited() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(3, null);
+        for (int i = 0; i < 5; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(3, messages(underTest).size());
+        assertEquals("m4", messages(underTest).get(0));
+        assertEquals("m2", messages(underTest).get(2));
+    }
+
+    @Test
+    public void historyIsResized() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(3, null);
+        for (int i = 0; i < 3; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        underTest.setMaxEntries(2);
+        assertEquals(2, messages(underTest).size());
+        assertEquals("m2", messages(underTest).get(0));
+        underTest.setMaxEntries(5);
+        for (int i = 3; i < 6; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(5, messages(underTest).size());
+        assertEquals("m5", messages(underTest).get(0));
+        assertEquals("m1", messages(underTest).get(4));
+        underTest.setMaxEntries(0);
+        assertEquals(0, messages(underTest).size());
+    }
+
+    @Test
+    public void asyncListenerDoesNotBlockLogging() throws Exception {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        underTest.setAsyncDispatch(2, LogReaderServiceImpl.OverflowPolicy.DROP_NEWEST);
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(3);
+        List<LogEntry> entries = Collections.synchronizedList(new LinkedList<>());
+        underTest.addLogListener(entry -> {
+            taken.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            entries.add(entry);
+            delivered.countDown();
+        });
+
+        // first entry is taken by delivery thread, two are queued, the rest is dropped
+        underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m0", null));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(2, underTest.getQueuedCount());
+        assertEquals(7, underTest.getDroppedCount());
+
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(3, entries.size());
+        assertEquals("m0", entries.get(0).getMessage());
+        assertEquals("m2", entries.get(2).getMessage());
+        assertTrue(underTest.getQueuedCount() == 0);
+        underTest.close();
+    }
+
+    @Test
+    public void changingAsyncDispatchKeepsOrderOfEntries() throws Exception {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(0, null);
+        underTest.setAsyncDispatch(100, LogReaderServiceImpl.OverflowPolicy.BLOCK);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(20);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean concurrentCalls = new AtomicBoolean();
+        List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        underTest.addLogListener(entry -> {
+            if (calls.incrementAndGet() > 1) {
+                concurrentCalls.set(true);
+            }
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            messages.add(entry.getMessage());
+            calls.decrementAndGet();
+            delivered.countDown();
+        });
+
+        for (int i = 0; i < 10; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        // old delivery thread is blocked by the listener, new one has to wait until it delivers queued entries
+        underTest.setAsyncDispatch(50, LogReaderServiceImpl.OverflowPolicy.DROP_NEWEST);
+        for (int i = 10; i < 20; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        release.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertFalse(concurrentCalls.get());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("m" + i, messages.get(i));
+        }
+        assertEquals(0, underTest.getDroppedCount());
+        underTest.close();
+    }
+
+    @Test
+    public void switchingToSynchronousDispatchDoesntBlockLogging() throws Exception {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(0, null);
+        underTest.setAsyncDispatch(100, LogReaderServiceImpl.OverflowPolicy.BLOCK);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(20);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicBoolean concurrentCalls = new AtomicBoolean();
+        List<String> messages = Collections.synchronizedList(new LinkedList<>());
+        List<Thread> threads = Collections.synchronizedList(new LinkedList<>());
+        underTest.addLogListener(entry -> {
+            if (calls.incrementAndGet() > 1) {
+                concurrentCalls.set(true);
+            }
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+            messages.add(entry.getMessage());
+            threads.add(Thread.currentThread());
+            calls.decrementAndGet();
+            delivered.countDown();
+        });
+
+        for (int i = 0; i < 10; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        // old delivery thread is blocked by the listener, so new entries are still queued
+        underTest.setAsyncDispatch(0, null);
+        CountDownLatch logged = new CountDownLatch(1);
+        new Thread(() -> {
+            for (int i = 10; i < 20; i++) {
+                underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+            }
+            logged.countDown();
+        }).start();
+        assertTrue(logged.await(1, TimeUnit.SECONDS));
+        assertTrue(messages.isEmpty());
+        release.countDown();
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertFalse(concurrentCalls.get());
+        for (int i = 0; i < 20; i++) {
+            assertEquals("m" + i, messages.get(i));
+        }
+        assertEquals(0, underTest.getDroppedCount());
+
+        // once the old delivery thread hands the listener over, entries are delivered in logging thread
+        for (int i = 0; i < 500 && !threads.contains(Thread.currentThread()); i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "n" + i, null));
+            Thread.sleep(10);
+        }
+        assertTrue(threads.contains(Thread.currentThread()));
+        assertFalse(concurrentCalls.get());
+        underTest.close();
+    }
+
+    @Test
+    public void incrementalReads() throws Exception {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        assertTrue(underTest.getLogSince(0L, 10).isEmpty());
+        for (int i = 0; i < 5; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        List<LogEntry> batch = underTest.getLogSince(0L, 3);
+        assertEquals(3, batch.size());
+        assertEquals("m0", batch.get(0).getMessage());
+        assertEquals("m2", batch.get(2).getMessage());
+        batch = underTest.getLogSince(batch.get(2).getSequence(), 3);
+        assertEquals(2, batch.size());
+        assertEquals("m3", batch.get(0).getMessage());
+        long cursor = batch.get(1).getSequence();
+        assertTrue(underTest.getLogSince(cursor, 3, 10, TimeUnit.MILLISECONDS).isEmpty());
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m5", null));
+        }).start();
+        batch = underTest.getLogSince(cursor, 3, 5, TimeUnit.SECONDS);
+        assertEquals(1, batch.size());
+        assertEquals("m5", batch.get(0).getMessage());
+    }
+
+    @Test
+    public void incrementalReadsFarBehind() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(1000, null);
+        for (int i = 0; i < 1500; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        // m500 is the oldest entry left
+        List<LogEntry> batch = underTest.getLogSince(0L, 3);
+        assertEquals(3, batch.size());
+        assertEquals("m500", batch.get(0).getMessage());
+        assertEquals("m502", batch.get(2).getMessage());
+
+        long cursor = batch.get(2).getSequence();
+        for (int i = 503; i < 1500; i += 10) {
+            batch = underTest.getLogSince(cursor, 10);
+            assertEquals(Math.min(10, 1500 - i), batch.size());
+            for (int j = 0; j < batch.size(); j++) {
+                assertEquals("m" + (i + j), batch.get(j).getMessage());
+            }
+            cursor = batch.get(batch.size() - 1).getSequence();
+        }
+        assertTrue(underTest.getLogSince(cursor, 10).isEmpty());
+    }
+
+    @Test
+    public void consumers() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(0, null);
+        assertFalse(underTest.hasConsumers());
+        MyTestListener listener = new MyTestListener();
+        underTest.addLogListener(listener);
+        assertTrue(underTest.hasConsumers());
+        underTest.removeLogListener(listener);
+        assertFalse(underTest.hasConsumers());
+        underTest.setMaxEntries(10);
+        assertTrue(underTest.hasConsumers());
+    }
+
+    @Test
+    public void incrementalReadsDontMissConcurrentEntries() throws Exception {
+        int threads = 4;
+        int perThread = 5000;
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(threads * perThread, null);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new LinkedList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                for (int i = 0; i < perThread; i++) {
+                    underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m", null));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+
+        long cursor = 0L;
+        int received = 0;
+        boolean writing = true;
+        while (writing || received < threads * perThread) {
+            writing = writers.stream().anyMatch(Thread::isAlive);
+            for (LogEntry entry : underTest.getLogSince(cursor, 100)) {
+                assertTrue(entry.getSequence() > cursor);
+                cursor = entry.getSequence();
+                received++;
+            }
+            if (!writing && underTest.getLogSince(cursor, 1).isEmpty()) {
+                break;
+            }
+        }
+        assertEquals(threads * perThread, received);
+    }
+
+    @Test
+    public void queries() {
+        Bundle b1 = mock(Bundle.class);
+        when(b1.getBundleId()).thenReturn(1L);
+        Bundle b2 = mock(Bundle.class);
+        when(b2.getBundleId()).thenReturn(2L);
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        underTest.fireEvent(new LogEntryImpl("a.b", b1, null, LogLevel.INFO, "m0", null));
+        underTest.fireEvent(new LogEntryImpl("a.c", b2, null, LogLevel.ERROR, "m1", null));
+        underTest.fireEvent(new LogEntryImpl("x.y", b1, null, LogLevel.WARN, "m2", null));
+        underTest.fireEvent(new LogEntryImpl("a.b", b2, null, LogLevel.DEBUG, "m3", null));
+
+        assertEquals(4, underTest.getLog(PaxLogQuery.query()).size());
+        List<LogEntry> result = underTest.getLog(PaxLogQuery.query().level(LogLevel.WARN));
+        assertEquals(2, result.size());
+        assertEquals("m2", result.get(0).getMessage());
+        assertEquals("m1", result.get(1).getMessage());
+        result = underTest.getLog(PaxLogQuery.query().bundle(2L));
+        assertEquals(2, result.size());
+        assertEquals("m3", result.get(0).getMessage());
+        result = underTest.getLog(PaxLogQuery.query().loggerPrefix("a.").limit(2));
+        assertEquals(2, result.size());
+        assertEquals("m3", result.get(0).getMessage());
+        assertEquals("m1", result.get(1).getMessage());
+        assertTrue(underTest.getLog(PaxLogQuery.query().bundle(3L)).isEmpty());
+        assertTrue(underTest.getLog(PaxLogQuery.query().to(result.get(1).getTime() - 1000L)).isEmpty());
+    }
+
+    @Test
+    public void historyIsLimitedByMemory() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        LogEntry small = new LogEntryImpl(null, null, null, LogLevel.INFO, "m0", null);
+        long size = LogHistory.estimateSize(small);
+        underTest.setMaxBytes(3 * size);
+        for (int i = 0; i < 5; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(Arrays.asList("m4", "m3", "m2"), messages(underTest));
+        assertEquals(3 * size, underTest.getHistoryBytes());
+
+        // entry exceeding the budget on its own is still kept
+        char[] big = new char[(int) size];
+        Arrays.fill(big, 'x');
+        underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, new String(big), null));
+        assertEquals(1, messages(underTest).size());
+
+        underTest.setMaxBytes(0L);
+        for (int i = 0; i < 5; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(6, messages(underTest).size());
+    }
+
+    @Test
+    public void memoryLimitAppliesToExistingHistory() {
+        // the reader starts before the configuration with the budget is applied
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        for (int i = 0; i < 5; i++) {
+            underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.INFO, "m" + i, null));
+        }
+        assertEquals(0L, underTest.getHistoryBytes());
+
+        long size = LogHistory.estimateSize(new LogEntryImpl(null, null, null, LogLevel.INFO, "m0", null));
+        underTest.setMaxBytes(2 * size);
+        assertEquals(Arrays.asList("m4", "m3"), messages(underTest));
+        assertEquals(2 * size, underTest.getHistoryBytes());
+    }
+
+    @Test
+    public void compactExceptions() {
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(10, null);
+        underTest.setCompactExceptions(true);
+        MyTestListener listener = new MyTestListener();
+        underTest.addLogListener(listener);
+        Exception e = new IllegalStateException("outer", new java.io.IOException("inner"));
+        underTest.fireEvent(new LogEntryImpl(null, null, null, LogLevel.ERROR, "m0", e));
+
+        assertSame(e, listener.entries.get(0).getException());
+        LogEntry entry = underTest.getLog().nextElement();
+        assertEquals(listener.entries.get(0).getSequence(), entry.getSequence());
+        assertTrue(entry.getException() instanceof ThrowableSnapshot);
+        assertEquals(e.toString(), entry.getException().toString());
+        assertEquals(e.getCause().toString(), entry.getException().getCause().toString());
+        assertArrayEquals(e.getStackTrace(), entry.getException().getStackTrace());
+    }
+
+    @Test
+    public void historyIsRestoredFromFile() throws Exception {
+        File file = new File("target/LogReaderTest/history.bin");
+        file.delete();
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(3, null);
+        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.INFO, "m0", null));
+        underTest.setHistoryFile(file);
+        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.WARN, "m1", null));
+        // exceptions thrown deep in the stack, like in real applications
+        Throwable exception = exception(40);
+        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.ERROR, "m2", exception));
+        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.INFO, "m3", null));
+        underTest.close();
+
+        List<LogHistoryFile.Record> records = LogHistoryFile.read(file);
+        assertEquals(3, records.size());
+        assertEquals("m1", records.get(0).getMessage());
+        assertEquals(LogLevel.WARN, records.get(0).getLevel());
+        Throwable cause = records.get(1).getException().getCause();
+        assertEquals("java.io.IOException: inner", cause.toString());
+        assertTrue(cause.getStackTrace().length > 0);
+        assertEquals(exception.getCause().getStackTrace()[0].toString(), cause.getStackTrace()[0].toString());
+        assertEquals("java.lang.IllegalArgumentException: root", cause.getCause().toString());
+
+        underTest = new LogReaderServiceImpl(3, null);
+        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.INFO, "m4", null));
+        underTest.setHistoryFile(file);
+        assertEquals(Arrays.asList("m4", "m3", "m2"), messages(underTest));
+        LogEntry restored = Collections.list(underTest.getLog()).get(2);
+        assertEquals("java.lang.IllegalStateException: outer", restored.getException().toString());
+        assertTrue(restored.getException().getStackTrace().length > 0);
+        assertEquals("java.io.IOException: inner", restored.getException().getCause().toString());
+        underTest.close();
+        assertEquals("m4", LogHistoryFile.read(file).get(2).getMessage());
+    }
+
+    @Test
+    public void historyFileIsReopenedWhileLogging() throws Exception {
+        File file = new File("target/LogReaderTest/reopened.bin");
+        file.delete();
+        LogReaderServiceImpl underTest = new LogReaderServiceImpl(100, null);
+        underTest.setHistoryFile(file);
+        AtomicBoolean logging = new AtomicBoolean(true);
+        AtomicInteger errors = new AtomicInteger();
+        List<Thread> writers = new LinkedList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread writer = new Thread(() -> {
+                try {
+                    while (logging.get()) {
+                        underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.INFO, "m", null));
+                    }
+                } catch (Throwable e) {
+                    errors.incrementAndGet();
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        try {
+            for (int i = 0; i < 50; i++) {
+                // history size changes, so the file is reopened with different capacity
+                underTest.setMaxEntries(i % 2 == 0 ? 10 : 100);
+                underTest.setHistoryFile(file);
+            }
+        } finally {
+            logging.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            underTest.fireEvent(new LogEntryImpl("l", null, null, LogLevel.INFO, "m" + i, null));
+        }
+        underTest.close();
+
+        assertEquals(0, errors.get());
+        List<LogHistoryFile.Record> records = LogHistoryFile.read(file);
+        assertEquals(100, records.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("m" + i, records.get(i).getMessage());
+        }
+    }
+
+    @Test
+    public void causeFramesCommonWithEnclosingExceptionAreRestored() throws Exception {
+        File file = new File("target/LogReaderTest/common-frames.bin");
+        file.delete();
+        StackTraceElement[] outerTrace = new StackTraceElement[10];
+        for (int i = 0; i < outerTrace.length; i++) {
+            outerTrace[i] = new StackTraceElement("C" + i, "m" + i, "C" + i + ".java", i);
+        }
+        StackTraceElement[] innerTrace = new StackTraceElement[12];
+        innerTrace[0] = new StackTraceElement("I0", "i0", "I0.java", 100);
+        innerTrace[1] = new StackTraceElement("I1", "i1", "I1.java", 101);
+        innerTrace[2] = new StackTraceElement("C1", "m1", "C1.java", 200);
+        System.arraycopy(outerTrace, 1, innerTrace, 3, 9);
+        Throwable inner = new java.io.IOException("inner");
+        inner.setStackTrace(innerTrace);
+        Throwable outer = new IllegalStateException("outer", inner);
+        outer.setStackTrace(outerTrace);
+
+        try (LogHistoryFile history = new LogHistoryFile(file, 2, false)) {
+            history.append(new LogEntryImpl("l", null, null, LogLevel.ERROR, "m", outer));
+        }
+        Throwable restored = LogHistoryFile.read(file).get(0).getException();
+        assertArrayEquals(outerTrace, restored.getStackTrace());
+        assertEquals("java.io.IOException: inner", restored.getCause().toString());
+        assertArrayEquals(innerTrace, restored.getCause().getStackTrace());
+    }
+
+    private static Throwable exception(int depth) {
+        if (depth > 0) {
+            return exception(depth - 1);
+        }
+        try {
+            try {
+                throw new java.io.IOException("inner", new IllegalArgumentException("root"));
+            } catch (java.io.IOException e) {
+                throw new IllegalStateException("outer", e);
+            }
+        } catch (IllegalStateException e) {
+            return e;
+        }
+    }
+
+    private List<String> messages(LogReaderServiceImpl reader) {
+        List<String> messages = new LinkedList<>();
+        for (LogEntry entry : Collections.list(reader.getLog())) {
+            messages.add(entry.getMessage());
+        }
+        return messages;
+    }
+
     private static class MyTestListener implements LogListener {
 
         private List<LogEntry> entries;
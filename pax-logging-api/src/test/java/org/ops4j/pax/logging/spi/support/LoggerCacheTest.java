@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.ops4j.pax.logging.PaxLogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class LoggerCacheTest {
+
+    @Test
+    public void loggersAreCached() {
+        AtomicInteger created = new AtomicInteger();
+        LoggerCache<PaxLogger> cache = new LoggerCache<>((b, c, f, p) -> {
+            created.incrementAndGet();
+            return mock(PaxLogger.class);
+        });
+
+        PaxLogger logger = cache.getLogger(null, "category", "fqcn", false);
+        assertSame(logger, cache.getLogger(null, "category", "fqcn", false));
+        assertNotSame(logger, cache.getLogger(null, "category", "fqcn", true));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void fullCacheEvictsUnusedLoggers() {
+        AtomicInteger created = new AtomicInteger();
+        LoggerCache<PaxLogger> cache = new LoggerCache<>((b, c, f, p) -> {
+            created.incrementAndGet();
+            return mock(PaxLogger.class);
+        }, 4);
+
+        for (int i = 0; i < 4; i++) {
+            cache.getLogger(null, "c" + i, "fqcn", false);
+        }
+        assertEquals(4, cache.size());
+
+        // mark "c0" as used, so it survives next evictions
+        PaxLogger c0 = cache.getLogger(null, "c0", "fqcn", false);
+        for (int i = 4; i < 100; i++) {
+            cache.getLogger(null, "c" + i, "fqcn", false);
+            assertSame(c0, cache.getLogger(null, "c0", "fqcn", false));
+            assertEquals(4, cache.size());
+        }
+
+        // the cache is still used after it got full
+        int count = created.get();
+        PaxLogger c99 = cache.getLogger(null, "c99", "fqcn", false);
+        assertSame(c99, cache.getLogger(null, "c99", "fqcn", false));
+        assertEquals(count, created.get());
+    }
+
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.ops4j.pax.logging.spi.PaxAppender;
+import org.ops4j.pax.logging.spi.PaxBatchAppender;
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl.OverflowPolicy;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PaxAppenderProxyTest {
+
+    private BundleContext context;
+    private ServiceListener listener;
+    private PaxAppenderProxy proxy;
+
+    // delegate appender blocked until released
+    private final CountDownLatch taken = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void init() throws Exception {
+        context = mock(BundleContext.class);
+        when(context.createFilter(anyString())).thenAnswer(invocation -> FrameworkUtil.createFilter(invocation.getArgument(0)));
+        doAnswer(invocation -> {
+            listener = invocation.getArgument(0);
+            return null;
+        }).when(context).addServiceListener(any(ServiceListener.class), anyString());
+    }
+
+    @After
+    public void close() {
+        release.countDown();
+        if (proxy != null) {
+            proxy.close();
+        }
+    }
+
+    @Test
+    public void queuedEventsAreDeliveredInOrder() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1000);
+        open(10, OverflowPolicy.BLOCK, event -> {
+            messages.add(event.getMessage());
+            delivered.countDown();
+        });
+        for (int i = 0; i < 1000; i++) {
+            proxy.doAppend(event("m" + i));
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(0L, proxy.getDroppedCount());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("m" + i, messages.get(i));
+        }
+    }
+
+    @Test
+    public void dropOldest() throws Exception {
+        ServiceReference<PaxAppender> reference = open(2, OverflowPolicy.DROP_OLDEST, this::blockingAppend);
+        fill();
+        assertEquals(3L, proxy.getDroppedCount());
+        assertEquals(2L, proxy.getQueuedCount());
+        release.countDown();
+        unregister(reference);
+        assertEquals(Arrays.asList("m0", "m4", "m5"), messages);
+    }
+
+    @Test
+    public void dropNewest() throws Exception {
+        ServiceReference<PaxAppender> reference = open(2, OverflowPolicy.DROP_NEWEST, this::blockingAppend);
+        fill();
+        assertEquals(3L, proxy.getDroppedCount());
+        assertEquals(2L, proxy.getQueuedCount());
+        release.countDown();
+        unregister(reference);
+        assertEquals(Arrays.asList("m0", "m1", "m2"), messages);
+    }
+
+    @Test
+    public void block() throws Exception {
+        ServiceReference<PaxAppender> reference = open(2, OverflowPolicy.BLOCK, this::blockingAppend);
+        proxy.doAppend(event("m0"));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        proxy.doAppend(event("m1"));
+        proxy.doAppend(event("m2"));
+
+        CountDownLatch appended = new CountDownLatch(1);
+        new Thread(() -> {
+            proxy.doAppend(event("m3"));
+            appended.countDown();
+        }).start();
+        // logging thread waits for space in the queue
+        assertFalse(appended.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(appended.await(5, TimeUnit.SECONDS));
+
+        unregister(reference);
+        assertEquals(0L, proxy.getDroppedCount());
+        assertEquals(Arrays.asList("m0", "m1", "m2", "m3"), messages);
+    }
+
+    @Test
+    public void blockedThreadsDontExceedQueueSize() throws Exception {
+        AtomicInteger maxQueued = new AtomicInteger();
+        CountDownLatch delivered = new CountDownLatch(800);
+        ServiceReference<PaxAppender> reference = open(2, OverflowPolicy.BLOCK, event -> {
+            maxQueued.accumulateAndGet((int) proxy.getQueuedCount(), Math::max);
+            Thread.yield();
+            delivered.countDown();
+        });
+        // events are mocked upfront, stubbing isn't thread safe
+        List<PaxLoggingEvent> events = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            events.add(event("m" + i));
+        }
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread producer = new Thread(() -> {
+                for (PaxLoggingEvent event : events) {
+                    proxy.doAppend(event);
+                    maxQueued.accumulateAndGet((int) proxy.getQueuedCount(), Math::max);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join(5000L);
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue("Queue size exceeded: " + maxQueued.get(), maxQueued.get() <= 2);
+        assertEquals(0L, proxy.getDroppedCount());
+        unregister(reference);
+    }
+
+    @Test
+    public void interruptedBlockedThreadDropsEvent() throws Exception {
+        ServiceReference<PaxAppender> reference = open(2, OverflowPolicy.BLOCK, this::blockingAppend);
+        fill(3);
+
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread producer = new Thread(() -> {
+            proxy.doAppend(event("m3"));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        producer.start();
+        producer.join(100L);
+        assertTrue(producer.isAlive());
+        producer.interrupt();
+        producer.join(5000L);
+
+        assertTrue(interrupted.get());
+        assertEquals(1L, proxy.getDroppedCount());
+        assertEquals(2L, proxy.getQueuedCount());
+        release.countDown();
+        unregister(reference);
+        assertEquals(Arrays.asList("m0", "m1", "m2"), messages);
+    }
+
+    @Test
+    public void removedAppenderGetsQueuedEventsBeforeItIsReleased() throws Exception {
+        AtomicBoolean released = new AtomicBoolean();
+        AtomicBoolean calledAfterRelease = new AtomicBoolean();
+        ServiceReference<PaxAppender> reference = open(100, OverflowPolicy.DROP_OLDEST, event -> {
+            blockingAppend(event);
+            calledAfterRelease.compareAndSet(false, released.get());
+        });
+        when(context.ungetService(reference)).thenAnswer(invocation -> {
+            released.set(true);
+            return true;
+        });
+        for (int i = 0; i < 10; i++) {
+            proxy.doAppend(event("m" + i));
+        }
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        // appender is removed while it's still processing the first event
+        Thread unregistering = new Thread(() -> unregister(reference));
+        unregistering.start();
+        release.countDown();
+        unregistering.join(5000L);
+
+        assertTrue(released.get());
+        assertFalse(calledAfterRelease.get());
+        assertEquals(10, messages.size());
+        assertEquals(0L, proxy.getDroppedCount());
+
+        // events logged after the appender is removed are not passed to it
+        proxy.doAppend(event("m10"));
+        assertEquals(10, messages.size());
+    }
+
+    @Test
+    public void batchAppenderGetsAllQueuedEvents() throws Exception {
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch delivered = new CountDownLatch(301);
+        ServiceReference<PaxAppender> reference = open(1000, OverflowPolicy.BLOCK, new PaxBatchAppender() {
+            @Override
+            public void doAppend(List<PaxLoggingEvent> events) {
+                taken.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                }
+                batches.add(events.size());
+                for (PaxLoggingEvent event : events) {
+                    messages.add(event.getMessage());
+                    delivered.countDown();
+                }
+            }
+
+            @Override
+            public void endOfBatch() {
+            }
+
+            @Override
+            public void doAppend(PaxLoggingEvent event) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        proxy.doAppend(event("m0"));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 301; i++) {
+            proxy.doAppend(event("m" + i));
+        }
+        release.countDown();
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        // first event alone, then the queued events in batches of at most 256 events
+        assertEquals(Arrays.asList(1, 256, 44), batches);
+        for (int i = 0; i < 301; i++) {
+            assertEquals("m" + i, messages.get(i));
+        }
+        unregister(reference);
+    }
+
+    @Test
+    public void synchronousBatchAppenderIsNotifiedAboutEndOfBatch() {
+        PaxBatchAppender appender = mock(PaxBatchAppender.class);
+        open(0, null, appender);
+        PaxLoggingEvent e1 = event("m1");
+        PaxLoggingEvent e2 = event("m2");
+        PaxLoggingEvent e3 = event("m3");
+        proxy.doAppend(e1, false);
+        proxy.doAppend(e2, true);
+        proxy.doAppend(e3);
+
+        InOrder inOrder = inOrder(appender);
+        inOrder.verify(appender).doAppend(e1);
+        inOrder.verify(appender).doAppend(e2);
+        inOrder.verify(appender).endOfBatch();
+        inOrder.verify(appender).doAppend(e3);
+        inOrder.verify(appender).endOfBatch();
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    /**
+     * Logs 6 events, while the first one is being processed by blocked appender
+     */
+    private void fill() throws InterruptedException {
+        fill(6);
+    }
+
+    /**
+     * Logs {@code count} events, while the first one is being processed by blocked appender
+     */
+    private void fill(int count) throws InterruptedException {
+        proxy.doAppend(event("m0"));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < count; i++) {
+            proxy.doAppend(event("m" + i));
+        }
+    }
+
+    private void blockingAppend(PaxLoggingEvent event) {
+        taken.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException ignored) {
+        }
+        messages.add(event.getMessage());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceReference<PaxAppender> open(int queueSize, OverflowPolicy policy, PaxAppender appender) {
+        proxy = new PaxAppenderProxy(context, "test", queueSize, policy);
+        proxy.open();
+        ServiceReference<PaxAppender> reference = mock(ServiceReference.class);
+        when(context.getService(reference)).thenReturn(appender);
+        listener.serviceChanged(new ServiceEvent(ServiceEvent.REGISTERED, reference));
+        return reference;
+    }
+
+    private void unregister(ServiceReference<PaxAppender> reference) {
+        listener.serviceChanged(new ServiceEvent(ServiceEvent.UNREGISTERING, reference));
+    }
+
+    private static PaxLoggingEvent event(String message) {
+        PaxLoggingEvent event = mock(PaxLoggingEvent.class);
+        when(event.getMessage()).thenReturn(message);
+        when(event.toImmutable()).thenReturn(event);
+        return event;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.spi.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PerThreadReadWriteLockTest {
+
+    private final PerThreadReadWriteLock lock = new PerThreadReadWriteLock();
+
+    @Test
+    public void writerWaitsForReader() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            lock.readLock().lock();
+            try {
+                reading.countDown();
+                release.await();
+            } catch (InterruptedException ignored) {
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+        reader.start();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch writing = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            lock.writeLock().lock();
+            writing.countDown();
+            lock.writeLock().unlock();
+        });
+        writer.start();
+        assertFalse(writing.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        reader.join(5000L);
+        writer.join(5000L);
+    }
+
+    @Test
+    public void readerWaitsForWriter() throws Exception {
+        lock.writeLock().lock();
+        // the writer may read (and write again)
+        lock.readLock().lock();
+        lock.writeLock().lock();
+        lock.writeLock().unlock();
+        lock.readLock().unlock();
+
+        CountDownLatch reading = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            lock.readLock().lock();
+            reading.countDown();
+            lock.readLock().unlock();
+        });
+        reader.start();
+        assertFalse(reading.await(100, TimeUnit.MILLISECONDS));
+        lock.writeLock().unlock();
+        assertTrue(reading.await(5, TimeUnit.SECONDS));
+        reader.join(5000L);
+    }
+
+    @Test
+    public void readersNeverSeeChangeInProgress() throws Exception {
+        int[] state = new int[2];
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger inconsistent = new AtomicInteger();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread reader = new Thread(() -> {
+                while (running.get()) {
+                    lock.readLock().lock();
+                    try {
+                        // reentrant read
+                        lock.readLock().lock();
+                        int first = state[0];
+                        lock.readLock().unlock();
+                        Thread.yield();
+                        if (first != state[1]) {
+                            inconsistent.incrementAndGet();
+                        }
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+        for (int i = 1; i <= 500; i++) {
+            lock.writeLock().lock();
+            try {
+                state[0] = i;
+                Thread.yield();
+                state[1] = i;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join(5000L);
+        }
+        assertEquals(0, inconsistent.get());
+    }
+
+}
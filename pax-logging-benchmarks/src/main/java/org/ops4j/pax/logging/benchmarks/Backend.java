@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.apache.logging.log4j.core.impl.ThreadContextDataInjector;
+import org.ops4j.pax.logging.PaxLoggingConstants;
+import org.ops4j.pax.logging.PaxLoggingService;
+import org.ops4j.pax.logging.log4j2.internal.LoggingManagedService;
+import org.ops4j.pax.logging.spi.support.ConfigurationNotifier;
+import org.ops4j.pax.logging.spi.support.FallbackLogFactory;
+import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl;
+import org.ops4j.pax.logging.spi.support.OsgiUtil;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Pax Logging backends that can be benchmarked. Each backend is configured with root logger at {@code INFO} level
+ * and single appender that discards all events, so {@code TRACE} is a <em>disabled</em> level and {@code INFO}
+ * is an <em>enabled</em> level that reaches the appender.
+ */
+public enum Backend {
+
+    LOG4J2 {
+        @Override
+        PaxLoggingService start(BundleContext context) {
+            // the same what org.ops4j.pax.logging.log4j2.internal.Activator does
+            ThreadContextDataInjector.contextDataProviders.clear();
+            ThreadContextDataInjector.contextDataProviders.add(new org.ops4j.pax.logging.log4j2.internal.PaxContextDataProvider());
+
+            org.ops4j.pax.logging.log4j2.internal.PaxLoggingServiceImpl service
+                    = new org.ops4j.pax.logging.log4j2.internal.PaxLoggingServiceImpl(context,
+                    new LogReaderServiceImpl(100, null), null, NOOP_NOTIFIER);
+
+            Dictionary<String, Object> config = new Hashtable<>();
+            config.put("log4j2.appender.null.type", "Null");
+            config.put("log4j2.appender.null.name", "null");
+            config.put("log4j2.rootLogger.level", "INFO");
+            config.put("log4j2.rootLogger.appenderRef.null.ref", "null");
+            useLocks(context, config);
+            try {
+                new LoggingManagedService(service).updated(config);
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+
+            return service;
+        }
+
+        @Override
+        void stop(PaxLoggingService service) {
+            ((org.ops4j.pax.logging.log4j2.internal.PaxLoggingServiceImpl) service).shutdown();
+        }
+    },
+
+    LOGBACK {
+        @Override
+        PaxLoggingService start(BundleContext context) {
+            org.ops4j.pax.logging.logback.internal.PaxLoggingServiceImpl service
+                    = new org.ops4j.pax.logging.logback.internal.PaxLoggingServiceImpl(context,
+                    new LogReaderServiceImpl(100, null), null, NOOP_NOTIFIER,
+                    FallbackLogFactory.createFallbackLog(context.getBundle(), "logback"));
+
+            Path file;
+            try {
+                file = Files.createTempFile("pax-logging-benchmark-logback", ".xml");
+                file.toFile().deleteOnExit();
+                Files.write(file, ("<configuration>\n"
+                        + "    <appender name=\"null\" class=\"ch.qos.logback.core.helpers.NOPAppender\" />\n"
+                        + "    <root level=\"INFO\">\n"
+                        + "        <appender-ref ref=\"null\" />\n"
+                        + "    </root>\n"
+                        + "</configuration>\n").getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            Dictionary<String, Object> config = new Hashtable<>();
+            config.put(PaxLoggingConstants.PID_CFG_LOGBACK_CONFIG_FILE, file.toString());
+            useLocks(context, config);
+            service.updated(config);
+
+            return service;
+        }
+
+        @Override
+        void stop(PaxLoggingService service) {
+            ((org.ops4j.pax.logging.logback.internal.PaxLoggingServiceImpl) service).shutdown();
+        }
+    };
+
+    /**
+     * Passes {@link PaxLoggingConstants#LOGGING_CFG_USE_LOCKS} system property (if set) to PID configuration,
+     * because the backends read it again from the configuration
+     * @param context
+     * @param config
+     */
+    private static void useLocks(BundleContext context, Dictionary<String, Object> config) {
+        String useLocks = OsgiUtil.systemOrContextProperty(context, PaxLoggingConstants.LOGGING_CFG_USE_LOCKS);
+        if (useLocks != null) {
+            config.put(PaxLoggingConstants.PID_CFG_USE_LOCKS, useLocks);
+        }
+    }
+
+    private static final ConfigurationNotifier NOOP_NOTIFIER = new ConfigurationNotifier() {
+        @Override
+        public void configurationDone() {
+        }
+
+        @Override
+        public void configurationError(Throwable t) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Creates and configures backend specific {@link PaxLoggingService}.
+     * @param context {@link BundleContext} of the (stub) backend bundle
+     * @return
+     */
+    abstract PaxLoggingService start(BundleContext context);
+
+    /**
+     * Shuts down {@link PaxLoggingService} created by {@link #start(BundleContext)}.
+     * @param service
+     */
+    abstract void stop(PaxLoggingService service);
+
+}
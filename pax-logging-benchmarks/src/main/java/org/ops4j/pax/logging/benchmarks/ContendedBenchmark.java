@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.ops4j.pax.logging.PaxLogger;
+import org.ops4j.pax.logging.PaxLoggingConstants;
+import org.ops4j.pax.logging.slf4j.Slf4jLogger;
+
+/**
+ * Multithreaded scenarios - shared loggers used concurrently and concurrent logger lookups through
+ * {@link org.ops4j.pax.logging.OSGIPaxLoggingManager}, which is shared by all facades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class ContendedBenchmark {
+
+    private static final int LOGGER_COUNT = 64;
+
+    @Param
+    public Backend backend;
+
+    @Param({ "SLF4J", "LOG4J2", "JUL" })
+    public Facade facade;
+
+    /**
+     * Value of {@code org.ops4j.pax.logging.useLocks} - whether enabled events acquire read lock or only check
+     * whether reconfiguration is in progress.
+     */
+    @Param({ "true", PaxLoggingConstants.USE_LOCKS_OPTIMISTIC })
+    public String useLocks;
+
+    private PaxLoggingEnvironment environment;
+    private Facade.FacadeLogger logger;
+    private final String[] names = new String[LOGGER_COUNT];
+
+    @Setup(Level.Trial)
+    public void setup() {
+        System.setProperty(PaxLoggingConstants.LOGGING_CFG_USE_LOCKS, useLocks);
+        environment = PaxLoggingEnvironment.start(backend, facade);
+        logger = facade.create("org.ops4j.pax.logging.benchmarks.ContendedBenchmark");
+        for (int i = 0; i < LOGGER_COUNT; i++) {
+            names[i] = "org.ops4j.pax.logging.benchmarks.ContendedBenchmark.logger" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+        System.clearProperty(PaxLoggingConstants.LOGGING_CFG_USE_LOCKS);
+    }
+
+    @Benchmark
+    public void disabled() {
+        logger.disabled("disabled message");
+    }
+
+    @Benchmark
+    public void enabled() {
+        logger.enabled("enabled message");
+    }
+
+    /**
+     * Lookup of (already existing) loggers - that's what happens when facade loggers are created
+     * on demand, e.g., {@code LoggerFactory.getLogger(getClass())} in non-static fields.
+     */
+    @Benchmark
+    public void lookup(Counter counter, Blackhole bh) {
+        PaxLogger paxLogger = environment.getManager().getLogger(names[counter.next()], Slf4jLogger.SLF4J_FQCN);
+        bh.consume(paxLogger);
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        private int index;
+
+        int next() {
+            index = (index + 1) & (LOGGER_COUNT - 1);
+            return index;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ops4j.pax.logging.log4jv2.Log4jv2LoggerContext;
+import org.ops4j.pax.logging.slf4j.Slf4jLoggerFactory;
+import org.slf4j.event.DefaultLoggingEvent;
+import org.slf4j.spi.LoggingEventAware;
+
+/**
+ * Disabled-level calls through facade APIs not covered by {@link FacadeBenchmark} and
+ * {@link ParameterizedBenchmark} - SLF4J 2 {@link org.slf4j.event.LoggingEvent} API and Log4J2 markers.
+ * Together with the two other benchmarks it's used by allocation check which requires disabled-level calls
+ * not to allocate anything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisabledLevelBenchmark {
+
+    @Param
+    public Backend backend;
+
+    private PaxLoggingEnvironment environment;
+
+    private LoggingEventAware slf4jLogger;
+    private DefaultLoggingEvent slf4jEvent;
+
+    private org.apache.logging.log4j.Logger log4j2Logger;
+    private Marker log4j2Marker;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = PaxLoggingEnvironment.start(backend, Facade.SLF4J, Facade.LOG4J2);
+
+        org.slf4j.Logger logger = new Slf4jLoggerFactory().getLogger("org.ops4j.pax.logging.benchmarks.DisabledLevelBenchmark");
+        slf4jLogger = (LoggingEventAware) logger;
+        slf4jEvent = new DefaultLoggingEvent(org.slf4j.event.Level.TRACE, logger);
+        slf4jEvent.setMessage("arg1: {}, arg2: {}");
+        slf4jEvent.addArgument("value");
+        slf4jEvent.addArgument(42);
+
+        log4j2Logger = new Log4jv2LoggerContext().getLogger("org.ops4j.pax.logging.benchmarks.DisabledLevelBenchmark");
+        log4j2Marker = MarkerManager.getMarker("BENCHMARK");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @Benchmark
+    public void slf4jLoggingEvent() {
+        slf4jLogger.log(slf4jEvent);
+    }
+
+    @Benchmark
+    public void log4j2Marker() {
+        log4j2Logger.trace(log4j2Marker, "disabled message");
+    }
+
+}
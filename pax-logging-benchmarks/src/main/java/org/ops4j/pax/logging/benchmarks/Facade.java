@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.logging.Level;
+
+import org.ops4j.pax.logging.PaxLoggingManager;
+import org.ops4j.pax.logging.internal.JdkHandler;
+import org.ops4j.pax.logging.jbosslogging.PaxLoggingLoggerProvider;
+import org.ops4j.pax.logging.log4jv2.Log4jv2LoggerContext;
+import org.ops4j.pax.logging.slf4j.Slf4jLoggerFactory;
+import org.osgi.framework.BundleContext;
+
+/**
+ * Logging facades supported by pax-logging-api. Each facade is bound to given {@link PaxLoggingManager} and
+ * creates a {@link FacadeLogger} that calls the facade's own API, so the whole path from facade, through
+ * {@link org.ops4j.pax.logging.internal.TrackingLogger} to backend {@link org.ops4j.pax.logging.PaxLogger}
+ * is measured.
+ */
+public enum Facade {
+
+    SLF4J(true) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            Slf4jLoggerFactory.setPaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.slf4j.Logger logger = new Slf4jLoggerFactory().getLogger(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+
+                @Override
+                public void parameterized(Object arg1, Object arg2) {
+                    logger.info("arg1: {}, arg2: {}", arg1, arg2);
+                }
+
+                @Override
+                public void disabledParameterized(Object arg1, Object arg2) {
+                    logger.trace("arg1: {}, arg2: {}", arg1, arg2);
+                }
+            };
+        }
+    },
+
+    JCL(false) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            org.apache.commons.logging.LogFactory.setPaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.apache.commons.logging.Log logger = org.apache.commons.logging.LogFactory.getLog(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+            };
+        }
+    },
+
+    JULI(false) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            org.apache.juli.logging.LogFactory.setPaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.apache.juli.logging.Log logger = org.apache.juli.logging.LogFactory.getLog(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+            };
+        }
+    },
+
+    LOG4J1(false) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            org.apache.log4j.Logger.configurePaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.apache.log4j.Logger logger = org.apache.log4j.Logger.getLogger(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+            };
+        }
+    },
+
+    LOG4J2(true) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            Log4jv2LoggerContext.setPaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.apache.logging.log4j.Logger logger = new Log4jv2LoggerContext().getLogger(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+
+                @Override
+                public void parameterized(Object arg1, Object arg2) {
+                    logger.info("arg1: {}, arg2: {}", arg1, arg2);
+                }
+
+                @Override
+                public void disabledParameterized(Object arg1, Object arg2) {
+                    logger.trace("arg1: {}, arg2: {}", arg1, arg2);
+                }
+            };
+        }
+    },
+
+    JBOSS_LOGGING(true) {
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            PaxLoggingLoggerProvider.setPaxLoggingManager(manager);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            org.jboss.logging.Logger logger = new PaxLoggingLoggerProvider().getLogger(name);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.trace(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+
+                @Override
+                public void parameterized(Object arg1, Object arg2) {
+                    logger.infof("arg1: %s, arg2: %s", arg1, arg2);
+                }
+
+                @Override
+                public void disabledParameterized(Object arg1, Object arg2) {
+                    logger.tracef("arg1: %s, arg2: %s", arg1, arg2);
+                }
+            };
+        }
+    },
+
+    JUL(true) {
+        private JdkHandler handler;
+
+        @Override
+        void bind(PaxLoggingManager manager, BundleContext context) {
+            handler = new JdkHandler(manager);
+            handler.setBundleContext(context);
+        }
+
+        @Override
+        FacadeLogger create(String name) {
+            // JUL loggers are weakly referenced by java.util.logging.LogManager
+            java.util.logging.Logger logger = java.util.logging.Logger.getLogger(name);
+            logger.setUseParentHandlers(false);
+            logger.setLevel(Level.ALL);
+            for (java.util.logging.Handler h : logger.getHandlers()) {
+                logger.removeHandler(h);
+            }
+            logger.addHandler(handler);
+            return new FacadeLogger() {
+                @Override
+                public void disabled(String message) {
+                    logger.finest(message);
+                }
+
+                @Override
+                public void enabled(String message) {
+                    logger.info(message);
+                }
+
+                @Override
+                public void parameterized(Object arg1, Object arg2) {
+                    logger.log(Level.INFO, "arg1: {0}, arg2: {1}", new Object[] { arg1, arg2 });
+                }
+
+                @Override
+                public void disabledParameterized(Object arg1, Object arg2) {
+                    logger.log(Level.FINEST, "arg1: {0}, arg2: {1}", new Object[] { arg1, arg2 });
+                }
+            };
+        }
+    };
+
+    private final boolean parameterized;
+
+    Facade(boolean parameterized) {
+        this.parameterized = parameterized;
+    }
+
+    /**
+     * Whether the facade provides API for messages with parameters
+     * @return
+     */
+    public boolean isParameterized() {
+        return parameterized;
+    }
+
+    /**
+     * Binds the facade to {@link PaxLoggingManager} - in OSGi this is done by pax-logging-api activator.
+     * @param manager
+     * @param context
+     */
+    abstract void bind(PaxLoggingManager manager, BundleContext context);
+
+    /**
+     * Creates facade-specific logger wrapped in {@link FacadeLogger}.
+     * @param name
+     * @return
+     */
+    abstract FacadeLogger create(String name);
+
+    /**
+     * Uniform view of facade-specific loggers. {@code TRACE} is the disabled level and {@code INFO} is the
+     * enabled level in all {@link Backend backends}.
+     */
+    public interface FacadeLogger {
+
+        void disabled(String message);
+
+        void enabled(String message);
+
+        default void parameterized(Object arg1, Object arg2) {
+            throw new UnsupportedOperationException("Facade doesn't support parameterized messages");
+        }
+
+        default void disabledParameterized(Object arg1, Object arg2) {
+            throw new UnsupportedOperationException("Facade doesn't support parameterized messages");
+        }
+    }
+
+}
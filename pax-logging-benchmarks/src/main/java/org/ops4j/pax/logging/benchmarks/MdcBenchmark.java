@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ops4j.pax.logging.slf4j.Slf4jMDCAdapter;
+
+/**
+ * Cost of logging with MDC - both the cost of MDC manipulation (which goes to backend's
+ * {@link org.ops4j.pax.logging.PaxContext}) and the cost of copying MDC into backend-specific context during
+ * the logging call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MdcBenchmark {
+
+    private static final String[] KEYS = { "user", "session", "request", "tenant", "operation", "component", "node", "trace" };
+
+    @Param
+    public Backend backend;
+
+    @Param({ "0", "4", "8" })
+    public int keys;
+
+    private PaxLoggingEnvironment environment;
+    private Facade.FacadeLogger logger;
+    private Slf4jMDCAdapter mdc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = PaxLoggingEnvironment.start(backend, Facade.SLF4J);
+        logger = Facade.SLF4J.create("org.ops4j.pax.logging.benchmarks.MdcBenchmark");
+        mdc = new Slf4jMDCAdapter();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mdc.clear();
+        environment.stop();
+    }
+
+    /**
+     * Typical request-scoped usage: put MDC values, log, remove MDC values.
+     */
+    @Benchmark
+    public void putLogRemove() {
+        for (int i = 0; i < keys; i++) {
+            mdc.put(KEYS[i], KEYS[i]);
+        }
+        logger.enabled("message with MDC");
+        for (int i = 0; i < keys; i++) {
+            mdc.remove(KEYS[i]);
+        }
+    }
+
+    /**
+     * Logging at disabled level with populated MDC.
+     */
+    @Benchmark
+    public void disabledWithMdc(ThreadMdc threadMdc) {
+        logger.disabled("message with MDC");
+    }
+
+    /**
+     * Logging at enabled level with populated MDC.
+     */
+    @Benchmark
+    public void enabledWithMdc(ThreadMdc threadMdc) {
+        logger.enabled("message with MDC");
+    }
+
+    /**
+     * Per-thread MDC content, populated once per iteration.
+     */
+    @State(Scope.Thread)
+    public static class ThreadMdc {
+
+        private Slf4jMDCAdapter mdc;
+
+        @Setup(Level.Iteration)
+        public void setup(MdcBenchmark benchmark) {
+            mdc = new Slf4jMDCAdapter();
+            for (int i = 0; i < benchmark.keys; i++) {
+                mdc.put(KEYS[i], KEYS[i]);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            mdc.clear();
+        }
+    }
+
+}
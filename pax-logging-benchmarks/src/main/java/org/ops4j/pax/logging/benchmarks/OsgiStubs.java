@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.Version;
+
+/**
+ * Minimal, {@link Proxy}-based implementations of OSGi framework interfaces, sufficient to run pax-logging
+ * facades, {@link org.ops4j.pax.logging.OSGIPaxLoggingManager} and backend services outside of OSGi framework.
+ * Methods not handled explicitly return {@code null}, {@code false} or {@code 0}.
+ */
+public final class OsgiStubs {
+
+    private OsgiStubs() {
+    }
+
+    /**
+     * Creates a stub {@link Bundle} together with its {@link BundleContext}. {@link BundleContext#getService}
+     * returns the services passed in {@code services} map, keyed by service reference.
+     * @param id
+     * @param symbolicName
+     * @param services
+     * @return
+     */
+    public static Bundle bundle(long id, String symbolicName, Map<ServiceReference<?>, Object> services) {
+        Bundle[] bundle = new Bundle[1];
+        BundleContext context = (BundleContext) Proxy.newProxyInstance(OsgiStubs.class.getClassLoader(),
+                new Class<?>[] { BundleContext.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBundle":
+                            return bundle[0];
+                        case "getProperty":
+                            return System.getProperty((String) args[0]);
+                        case "getService":
+                            return services.get((ServiceReference<?>) args[0]);
+                        case "ungetService":
+                            return services.containsKey((ServiceReference<?>) args[0]);
+                        case "createFilter":
+                            return FrameworkUtil.createFilter((String) args[0]);
+                        default:
+                            return common(proxy, method.getName(), args, method.getReturnType(), "BundleContext of " + symbolicName);
+                    }
+                });
+
+        Version version = Version.parseVersion("1.0.0");
+        bundle[0] = (Bundle) Proxy.newProxyInstance(OsgiStubs.class.getClassLoader(),
+                new Class<?>[] { Bundle.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBundleId":
+                            return id;
+                        case "getSymbolicName":
+                            return symbolicName;
+                        case "getVersion":
+                            return version;
+                        case "getState":
+                            return Bundle.ACTIVE;
+                        case "getBundleContext":
+                            return context;
+                        case "getHeaders":
+                            return new Hashtable<String, String>();
+                        default:
+                            return common(proxy, method.getName(), args, method.getReturnType(), symbolicName + " [" + id + "]");
+                    }
+                });
+
+        return bundle[0];
+    }
+
+    /**
+     * Creates stub {@link Bundle} which doesn't provide any services through its {@link BundleContext}.
+     * @param id
+     * @param symbolicName
+     * @return
+     */
+    public static Bundle bundle(long id, String symbolicName) {
+        return bundle(id, symbolicName, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates stub {@link ServiceReference} for given bundle.
+     * @param bundle
+     * @param <S>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <S> ServiceReference<S> serviceReference(Bundle bundle) {
+        return (ServiceReference<S>) Proxy.newProxyInstance(OsgiStubs.class.getClassLoader(),
+                new Class<?>[] { ServiceReference.class }, (proxy, method, args) -> {
+                    if ("getBundle".equals(method.getName())) {
+                        return bundle;
+                    }
+                    if ("getPropertyKeys".equals(method.getName())) {
+                        return new String[0];
+                    }
+                    return common(proxy, method.getName(), args, method.getReturnType(), "ServiceReference of " + bundle);
+                });
+    }
+
+    private static Object common(Object proxy, String name, Object[] args, Class<?> returnType, String description) {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description;
+            default:
+                break;
+        }
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == int.class) {
+            return 0;
+        }
+        if (returnType == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+}
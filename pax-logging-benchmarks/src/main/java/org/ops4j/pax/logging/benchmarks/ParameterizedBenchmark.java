@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of logging messages with parameters through facades that support them. Formatting happens in
+ * the backend ({@code {}}, {@code %s} and {@code {0}} styles), so disabled variant shows whether arguments
+ * are processed before level check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParameterizedBenchmark {
+
+    @Param
+    public Backend backend;
+
+    @Param({ "SLF4J", "LOG4J2", "JBOSS_LOGGING", "JUL" })
+    public Facade facade;
+
+    private PaxLoggingEnvironment environment;
+    private Facade.FacadeLogger logger;
+
+    private final Object arg1 = "value";
+    private final Object arg2 = 42;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = PaxLoggingEnvironment.start(backend, facade);
+        logger = facade.create("org.ops4j.pax.logging.benchmarks.ParameterizedBenchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.stop();
+    }
+
+    @Benchmark
+    public void disabledParameterized() {
+        logger.disabledParameterized(arg1, arg2);
+    }
+
+    @Benchmark
+    public void parameterized() {
+        logger.parameterized(arg1, arg2);
+    }
+
+}
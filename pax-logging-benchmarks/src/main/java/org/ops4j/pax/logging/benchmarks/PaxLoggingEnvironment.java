@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ops4j.pax.logging.OSGIPaxLoggingManager;
+import org.ops4j.pax.logging.PaxLoggingService;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Wiring of pax-logging-api and a backend without OSGi framework. What's normally done by the framework (service
+ * registration and tracking) is done here explicitly - backend {@link PaxLoggingService} is created and passed
+ * to {@link OSGIPaxLoggingManager#addingService(ServiceReference)}, which is then bound to the facades.
+ */
+public final class PaxLoggingEnvironment {
+
+    private final Backend backend;
+    private final Facade[] facades;
+
+    private final Bundle apiBundle;
+    private final ServiceReference<PaxLoggingService> reference;
+    private final PaxLoggingService service;
+    private final OSGIPaxLoggingManager manager;
+
+    private PaxLoggingEnvironment(Backend backend, Facade... facades) {
+        this.backend = backend;
+        this.facades = facades;
+
+        Map<ServiceReference<?>, Object> services = new ConcurrentHashMap<>();
+        Bundle backendBundle = OsgiStubs.bundle(2L, "org.ops4j.pax.logging.pax-logging-" + backend.name().toLowerCase());
+        apiBundle = OsgiStubs.bundle(1L, "org.ops4j.pax.logging.pax-logging-api", services);
+
+        service = backend.start(backendBundle.getBundleContext());
+        reference = OsgiStubs.serviceReference(backendBundle);
+        services.put(reference, service);
+
+        manager = new OSGIPaxLoggingManager(apiBundle.getBundleContext());
+        manager.addingService(reference);
+
+        for (Facade facade : facades) {
+            facade.bind(manager, apiBundle.getBundleContext());
+        }
+    }
+
+    /**
+     * Starts given {@link Backend} and binds it to given {@link Facade facades}.
+     * @param backend
+     * @param facades
+     * @return
+     */
+    public static PaxLoggingEnvironment start(Backend backend, Facade... facades) {
+        return new PaxLoggingEnvironment(backend, facades);
+    }
+
+    public OSGIPaxLoggingManager getManager() {
+        return manager;
+    }
+
+    public PaxLoggingService getService() {
+        return service;
+    }
+
+    /**
+     * Unbinds the facades, disposes {@link OSGIPaxLoggingManager} and shuts down the backend.
+     */
+    public void stop() {
+        for (Facade facade : facades) {
+            facade.bind(null, apiBundle.getBundleContext());
+        }
+        manager.removedService(reference, service);
+        manager.dispose();
+        backend.stop(service);
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.benchmarks;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Allocation check for disabled-level calls. Every facade (in every backend) should reject a call at disabled
+ * level without allocating anything - messages at {@code TRACE}/{@code DEBUG} are the majority of logging
+ * calls and are usually disabled.
+ *
+ * JUL is not checked, because {@link java.util.logging.LogRecord} is created by JUL itself before
+ * {@link org.ops4j.pax.logging.internal.JdkHandler} is called.
+ */
+public class DisabledLevelAllocationTest {
+
+    /**
+     * {@code gc.alloc.rate.norm} may be slightly above zero even for allocation-free code, because JMH
+     * infrastructure allocates a bit per iteration. Real allocation is at least 16 bytes per operation.
+     */
+    private static final double THRESHOLD = 1.0d;
+
+    @Test
+    public void disabledCallsDontAllocate() throws Exception {
+        List<String> failures = new LinkedList<>();
+
+        check(options(FacadeBenchmark.class.getSimpleName() + ".disabled$")
+                .param("facade", "SLF4J", "JCL", "JULI", "LOG4J1", "LOG4J2", "JBOSS_LOGGING"), failures);
+        check(options(ParameterizedBenchmark.class.getSimpleName() + ".disabledParameterized$")
+                .param("facade", "SLF4J", "LOG4J2", "JBOSS_LOGGING"), failures);
+        check(options(DisabledLevelBenchmark.class.getSimpleName() + "\\."), failures);
+
+        if (!failures.isEmpty()) {
+            fail("Disabled-level calls allocate memory:\n" + String.join("\n", failures));
+        }
+    }
+
+    private ChainedOptionsBuilder options(String include) {
+        return new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(500))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.milliseconds(500))
+                .shouldFailOnError(true);
+    }
+
+    private void check(ChainedOptionsBuilder options, List<String> failures) throws Exception {
+        Collection<RunResult> results = new Runner(options.build()).run();
+        assertTrue("No benchmarks were run", results.size() > 0);
+
+        for (RunResult result : results) {
+            Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            if (allocation == null) {
+                fail("GC profiler didn't report allocation rate for " + result.getParams().getBenchmark());
+            }
+            if (allocation.getScore() >= THRESHOLD) {
+                failures.add(String.format(" - %s %s: %.1f B/op", result.getParams().getBenchmark(),
+                        result.getParams().getParamsKeys().stream()
+                                .map(k -> k + "=" + result.getParams().getParam(k))
+                                .reduce((a, b) -> a + ", " + b).orElse(""),
+                        allocation.getScore()));
+            }
+        }
+    }
+
+}
@@ -27,13 +27,13 @@ import java.util.Map;
 import java.util.Properties;
 
 import org.apache.logging.log4j.core.impl.ThreadContextDataInjector;
-import org.apache.logging.log4j.core.impl.ThreadContextDataProvider;
 import org.apache.logging.log4j.core.lookup.StrSubstitutor;
 import org.apache.logging.log4j.status.StatusLogger;
 import org.ops4j.pax.logging.EventAdminPoster;
 import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.PaxLoggingService;
 import org.ops4j.pax.logging.spi.support.BackendSupport;
+import org.ops4j.pax.logging.spi.support.BundleMetadata;
 import org.ops4j.pax.logging.spi.support.ConfigurationNotifier;
 import org.ops4j.pax.logging.spi.support.DefaultServiceLog;
 import org.ops4j.pax.logging.spi.support.FallbackLogFactory;
@@ -73,6 +73,9 @@ public class Activator implements BundleActivator {
         String levelName = BackendSupport.defaultLogLevel(bundleContext);
         DefaultServiceLog.setLogLevel(levelName);
 
+        // cached bundle.id/bundle.name/bundle.version MDC values of updated/uninstalled bundles have to be removed
+        bundleContext.addBundleListener(BundleMetadata.listener());
+
         // OSGi Compendium 101.4: Log Reader Service
         logReaderInfo = BackendSupport.createAndRegisterLogReaderService(bundleContext);
 
@@ -85,7 +88,7 @@ public class Activator implements BundleActivator {
         boolean cm = BackendSupport.isConfigurationAdminAvailable();
 
         ThreadContextDataInjector.contextDataProviders.clear();
-        ThreadContextDataInjector.contextDataProviders.add(new ThreadContextDataProvider());
+        ThreadContextDataInjector.contextDataProviders.add(new PaxContextDataProvider());
 
         if (!cm) {
             StatusLogger.getLogger().info("Configuration Admin is not available.");
@@ -194,6 +197,9 @@ public class Activator implements BundleActivator {
         m_RegistrationPaxLogging.unregister();
         m_RegistrationPaxLogging = null;
 
+        bundleContext.removeBundleListener(BundleMetadata.listener());
+        BundleMetadata.clear();
+
         // Shutdown Pax Logging to ensure appender file locks get released
         if (m_PaxLogging != null) {
             m_PaxLogging.shutdown();
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.log4j2.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.util.ContextDataProvider;
+import org.ops4j.pax.logging.PaxContext;
+import org.ops4j.pax.logging.PaxLoggingConstants;
+import org.ops4j.pax.logging.spi.support.BundleMetadata;
+import org.osgi.framework.Bundle;
+
+/**
+ * <p>{@link ContextDataProvider} that supplies the context data of Log4J2 events directly from
+ * {@link org.ops4j.pax.logging.PaxContext} of the {@link PaxLoggerImpl} that's currently logging, together
+ * with {@code bundle.id}, {@code bundle.name} and {@code bundle.version} keys of logger's bundle (cached in
+ * {@link BundleMetadata}).</p>
+ *
+ * <p>Previously each event copied entire {@link org.ops4j.pax.logging.PaxContext} into {@link ThreadContext}
+ * (which in pax-logging is backed by the same {@link org.ops4j.pax.logging.PaxContext}) and removed bundle keys
+ * after the event was logged. Now {@link PaxLoggerImpl} only marks itself as current logger.</p>
+ *
+ * <p>Context data is collected when Log4J2 creates the event (on application thread also for
+ * {@link org.apache.logging.log4j.core.async.AsyncLoggerContext}). Log4J2's {@code ThreadContextDataInjector}
+ * copies returned map into the event's own context data, so the map is cached per thread and rebuilt only when
+ * the MDC ({@link org.ops4j.pax.logging.PaxContext#getVersion()}) or the logger's bundle changes.</p>
+ */
+public class PaxContextDataProvider implements ContextDataProvider {
+
+    private static final ThreadLocal<PaxLoggerImpl> CURRENT_LOGGER = new ThreadLocal<>();
+    private static final ThreadLocal<CachedContext> CACHE = ThreadLocal.withInitial(CachedContext::new);
+
+    /**
+     * Marks given logger as the one creating Log4J2 events in current thread
+     * @param logger
+     * @return previous logger which should be restored with {@link #restore(PaxLoggerImpl)}
+     */
+    static PaxLoggerImpl enter(PaxLoggerImpl logger) {
+        PaxLoggerImpl previous = CURRENT_LOGGER.get();
+        CURRENT_LOGGER.set(logger);
+        return previous;
+    }
+
+    /**
+     * Restores logger marked as current before {@link #enter(PaxLoggerImpl)}
+     * @param previous
+     */
+    static void restore(PaxLoggerImpl previous) {
+        CURRENT_LOGGER.set(previous);
+    }
+
+    @Override
+    public Map<String, String> supplyContextData() {
+        PaxLoggerImpl logger = CURRENT_LOGGER.get();
+        if (logger == null) {
+            // event not created by pax-logging (e.g., by Log4J2 itself) - behave like ThreadContextDataProvider
+            return ThreadContext.getImmutableContext();
+        }
+
+        PaxContext paxContext = logger.getPaxContext();
+        Map<String, Object> context = paxContext.getContext();
+        Bundle bundle = logger.getBundle();
+        Map<String, String> bundleContext = bundle == null ? Collections.emptyMap() : BundleMetadata.of(bundle).getContext();
+        if (context == null || context.isEmpty()) {
+            // immutable and shared by all events of given bundle
+            return bundleContext;
+        }
+
+        CachedContext cached = CACHE.get();
+        int version = paxContext.getVersion();
+        if (cached.source != context || cached.version != version || cached.bundleContext != bundleContext) {
+            Map<String, String> result = new HashMap<>(context.size() + bundleContext.size());
+            for (Map.Entry<String, Object> entry : context.entrySet()) {
+                Object value = entry.getValue();
+                if (value != null && !PaxLoggingConstants._LOG4J2_MESSAGE.equals(entry.getKey())) {
+                    result.put(entry.getKey(), value instanceof String ? (String) value : value.toString());
+                }
+            }
+            result.putAll(bundleContext);
+
+            cached.source = context;
+            cached.version = version;
+            cached.bundleContext = bundleContext;
+            cached.result = Collections.unmodifiableMap(result);
+        }
+
+        return cached.result;
+    }
+
+    /**
+     * Context data built for the MDC of current thread
+     */
+    private static class CachedContext {
+        Map<String, Object> source;
+        int version;
+        Map<String, String> bundleContext;
+        Map<String, String> result;
+    }
+
+}
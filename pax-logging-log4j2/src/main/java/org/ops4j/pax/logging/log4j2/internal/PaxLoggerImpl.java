@@ -20,10 +20,10 @@ package org.ops4j.pax.logging.log4j2.internal;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.Marker;
-import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.message.SimpleMessage;
 import org.apache.logging.log4j.spi.ExtendedLogger;
@@ -1128,6 +1128,8 @@ public class PaxLoggerImpl implements PaxLogger {
                         Throwable t, final ServiceReference<?> ref,
                         Object... args) {
         Message originalMessage = setDelegateContext();
+        Lock lock = m_service.lockForEvent();
+        PaxLoggerImpl previous = PaxContextDataProvider.enter(this);
         try {
             Message msg = originalMessage;
             if (originalMessage == null) {
@@ -1139,42 +1141,32 @@ public class PaxLoggerImpl implements PaxLogger {
             }
             m_delegate.logMessage(fqcn, level, marker, msg, t);
         } finally {
-            clearDelegateContext();
+            PaxContextDataProvider.restore(previous);
+            if (lock != null) {
+                lock.unlock();
+            }
         }
         LogLevel l = level == AUDIT ? LogLevel.AUDIT : getLogLevel(level.getStandardLevel());
-        m_service.handleEvents(getName(), m_bundle, ref, l, message, t);
+        m_service.handleEvents(getName(), fqcn, m_bundle, ref, l, message, t);
     }
 
+    /**
+     * Prepares the context for an event. MDC is not copied to Log4J2's
+     * {@link org.apache.logging.log4j.ThreadContext} - it's provided directly by {@link PaxContextDataProvider}.
+     * @return a {@link Message} passed through MDC (if any)
+     */
     private Message setDelegateContext() {
         Message originalMessage = null;
         Map<String, Object> context = getPaxContext().getContext();
         if (context != null) {
             originalMessage = (Message) context.remove(PaxLoggingConstants._LOG4J2_MESSAGE);
-            for (Map.Entry<String, Object> entry : context.entrySet()) {
-                put(entry.getKey(), entry.getValue());
-            }
         }
-        if (m_bundle != null) {
-            put("bundle.id", m_bundle.getBundleId());
-            put("bundle.name", m_bundle.getSymbolicName());
-            put("bundle.version", m_bundle.getVersion().toString());
-        }
-        m_service.lock(false);
 
         return originalMessage;
     }
 
-    private void put(String name, Object o) {
-        if (o != null) {
-            ThreadContext.put(name, o.toString());
-        }
-    }
-
-    private void clearDelegateContext() {
-        m_service.unlock(false);
-        ThreadContext.remove("bundle.id");
-        ThreadContext.remove("bundle.name");
-        ThreadContext.remove("bundle.version");
+    Bundle getBundle() {
+        return m_bundle;
     }
 
 }
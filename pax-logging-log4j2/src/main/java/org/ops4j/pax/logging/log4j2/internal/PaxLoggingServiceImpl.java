@@ -29,6 +29,7 @@ import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -46,6 +47,7 @@ import org.apache.logging.log4j.status.StatusData;
 import org.apache.logging.log4j.status.StatusLogger;
 import org.apache.logging.log4j.util.PaxPropertySource;
 import org.apache.logging.log4j.util.PropertiesUtil;
+import org.ops4j.pax.logging.ConfigurationEpoch;
 import org.ops4j.pax.logging.EventAdminPoster;
 import org.ops4j.pax.logging.PaxContext;
 import org.ops4j.pax.logging.PaxLogger;
@@ -53,9 +55,12 @@ import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.PaxLoggingService;
 import org.ops4j.pax.logging.spi.support.BackendSupport;
 import org.ops4j.pax.logging.spi.support.ConfigurationNotifier;
+import org.ops4j.pax.logging.spi.support.LocationCapture;
 import org.ops4j.pax.logging.spi.support.LogEntryImpl;
 import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl;
+import org.ops4j.pax.logging.spi.support.LoggerCache;
 import org.ops4j.pax.logging.spi.support.OsgiUtil;
+import org.ops4j.pax.logging.spi.support.PerThreadReadWriteLock;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceFactory;
@@ -84,7 +89,7 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     private final BundleContext m_bundleContext;
 
-    private ReadWriteLock m_configLock;
+    private volatile ReadWriteLock m_configLock;
 
     // LogReaderService registration as defined by org.osgi.service.log package
     private final LogReaderServiceImpl m_logReader;
@@ -92,9 +97,17 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
     // pax-logging-log4j2 specific PaxContext for all MDC access
     private final PaxContext m_paxContext;
 
+    // loggers used by LogService.log() and R7 getLogger() methods
+    private final LoggerCache<PaxLogger> m_loggers = new LoggerCache<>(this::newCachedLogger);
+
     // optional bridging into Event Admin service
     private final EventAdminPoster m_eventAdmin;
 
+    // minimal level of events passed to m_logReader and m_eventAdmin, null if disabled
+    private volatile LogLevel m_eventsLevel = LogLevel.TRACE;
+    // loggers for which location of events passed to m_logReader and m_eventAdmin is captured, null if disabled
+    private volatile LocationCapture m_locationCapture;
+
     // optional notification mechanism for configuration events
     private final ConfigurationNotifier m_configNotifier;
 
@@ -131,11 +144,11 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
         m_paxContext = new PaxContext();
 
+        // loggers of uninstalled bundles are removed from the cache
+        bundleContext.addBundleListener(m_loggers);
+
         String useLocks = OsgiUtil.systemOrContextProperty(bundleContext, PaxLoggingConstants.LOGGING_CFG_USE_LOCKS);
-        if (!"false".equalsIgnoreCase(useLocks)) {
-            // do not use locks ONLY if the property is "false". Otherwise (or if not set at all), use the locks
-            m_configLock = new ReentrantReadWriteLock();
-        }
+        configureLocks(useLocks);
 
         String errorsAsExceptionValue = OsgiUtil.systemOrContextProperty(bundleContext, PaxLoggingConstants.LOGGING_CFG_LOG4J2_ERRORS_AS_EXCEPTION);
         if ("true".equalsIgnoreCase(errorsAsExceptionValue)) {
@@ -150,11 +163,49 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
      * used just before disposing of the service instance.
      */
     public synchronized void shutdown() {
+        m_bundleContext.removeBundleListener(m_loggers);
+        m_loggers.clear();
         StatusLogger.getLogger().reset();
         m_log4jContext.stop();
         closed = true;
     }
 
+    /**
+     * Switches locking mode according to {@link PaxLoggingConstants#PID_CFG_USE_LOCKS} value
+     * @param useLocks
+     */
+    private void configureLocks(String useLocks) {
+        if ("false".equalsIgnoreCase(useLocks)) {
+            // do not use locks ONLY if the property is "false"
+            m_configLock = null;
+        } else if (PaxLoggingConstants.USE_LOCKS_OPTIMISTIC.equalsIgnoreCase(useLocks)) {
+            // log operations only flag their own thread, reconfiguration waits for flagged threads
+            if (!(m_configLock instanceof PerThreadReadWriteLock)) {
+                m_configLock = new PerThreadReadWriteLock();
+            }
+        } else {
+            // otherwise (or if not set at all), use the locks
+            if (m_configLock == null || m_configLock instanceof PerThreadReadWriteLock) {
+                m_configLock = new ReentrantReadWriteLock();
+            }
+        }
+    }
+
+    /**
+     * Prepares the configuration for single log operation. In "optimistic" mode, the read lock doesn't write
+     * any state shared with other logging threads, but reconfiguration still waits for the log operation to finish.
+     * @return a lock that has to be unlocked after the log operation or {@code null} if no lock was acquired
+     */
+    Lock lockForEvent() {
+        ReadWriteLock lock = m_configLock;
+        if (lock == null) {
+            return null;
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        return readLock;
+    }
+
     /**
      * Locks the configuration if needed
      * @param useWriteLock whether to use {@link ReadWriteLock#readLock()} ({@code false})
@@ -191,7 +242,8 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     @Override
     public PaxLogger getLogger(Bundle bundle, String category, String fqcn) {
-        return getLogger(bundle, category, fqcn, false);
+        // not cached - TrackingLogger (the main caller) keeps its delegate until the service changes
+        return createLogger(bundle, category, fqcn, false);
     }
 
     @Override
@@ -232,12 +284,12 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     @Override
     public org.osgi.service.log.Logger getLogger(String name) {
-        return getLogger(null, name, PaxLoggerImpl.FQCN);
+        return getCachedLogger(null, name, PaxLoggerImpl.FQCN, false);
     }
 
     @Override
     public org.osgi.service.log.Logger getLogger(Class<?> clazz) {
-        return getLogger(null, clazz.getName(), PaxLoggerImpl.FQCN);
+        return getCachedLogger(null, clazz.getName(), PaxLoggerImpl.FQCN, false);
     }
 
     @Override
@@ -257,15 +309,15 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     private <L extends org.osgi.service.log.Logger> L getLogger(Bundle bundle, String name, Class<L> loggerType, String fqcn) {
         if (loggerType == org.osgi.service.log.Logger.class) {
-            return loggerType.cast(getLogger(bundle, name, fqcn, false));
+            return loggerType.cast(getCachedLogger(bundle, name, fqcn, false));
         } else if (loggerType == org.osgi.service.log.FormatterLogger.class) {
-            return loggerType.cast(getLogger(bundle, name, fqcn, true));
+            return loggerType.cast(getCachedLogger(bundle, name, fqcn, true));
         }
         throw new IllegalArgumentException("Can't obtain logger with type " + loggerType);
     }
 
     /**
-     * The only method that creates new instance of {@link PaxLoggerImpl}. Used by log() methods from R6 and directly
+     * Returns cached instance of {@link PaxLoggerImpl}. Used by log() methods from R6 and directly
      * by getLogger() methods from R7.
      * @param bundle
      * @param category
@@ -273,7 +325,22 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
      * @param printfFormatting whether to use Slf4J ({@code "{}"} - {@code false}) or printf formatting ({@code "%s"} - {@code true}).
      * @return
      */
-    private PaxLogger getLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+    private PaxLogger getCachedLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+        return m_loggers.getLogger(bundle, category, fqcn, printfFormatting);
+    }
+
+    /**
+     * Creates a logger for {@link LoggerCache}. Loggers with Slf4J formatting are obtained from
+     * {@link #getLogger(Bundle, String, String)}, so it remains the single point of creating them.
+     */
+    private PaxLogger newCachedLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+        return printfFormatting ? createLogger(bundle, category, fqcn, true) : getLogger(bundle, category, fqcn);
+    }
+
+    /**
+     * The only method that creates new instance of {@link PaxLoggerImpl}.
+     */
+    private PaxLoggerImpl createLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
         Logger log4j2Logger;
         if (category == null) {
             log4j2Logger = m_log4jContext.getRootLogger();
@@ -310,14 +377,7 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
 
         Object useLocks = configuration.get(PaxLoggingConstants.PID_CFG_USE_LOCKS);
-        if (!"false".equalsIgnoreCase(String.valueOf(useLocks))) {
-            // do not use locks ONLY if the property is "false". Otherwise (or if not set at all), use the locks
-            if (m_configLock == null) {
-                m_configLock = new ReentrantReadWriteLock();
-            }
-        } else {
-            m_configLock = null;
-        }
+        configureLocks(String.valueOf(useLocks));
 
         Object configfile = configuration.get(PaxLoggingConstants.PID_CFG_LOG4J2_CONFIG_FILE);
 
@@ -358,7 +418,7 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
     private void logImpl(Bundle bundle, int level, String message, Throwable exception, String fqcn) {
         String category = BackendSupport.category(bundle);
 
-        PaxLogger logger = getLogger(bundle, category, fqcn);
+        PaxLogger logger = getCachedLogger(bundle, category, fqcn, false);
         if (exception != null) {
             if (level < LOG_ERROR) {
                 logger.audit(message, exception);
@@ -404,14 +464,26 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
     }
 
-    void handleEvents(String name, Bundle bundle, ServiceReference<?> sr, LogLevel level, String message, Throwable exception) {
-        LogEntry entry = m_logReader != null || m_eventAdmin != null
-                ? new LogEntryImpl(name, bundle, sr, level, message, exception) : null;
-        if (m_logReader != null) {
+    void handleEvents(String name, String fqcn, Bundle bundle, ServiceReference<?> sr, LogLevel level, String message, Throwable exception) {
+        LogLevel eventsLevel = m_eventsLevel;
+        if (eventsLevel == null || !eventsLevel.implies(level)) {
+            return;
+        }
+        boolean postEvent = m_eventAdmin != null && m_eventAdmin.hasSubscribers(level);
+        boolean fireEvent = m_logReader != null && m_logReader.hasConsumers();
+        LogEntry entry = null;
+        if (fireEvent || postEvent) {
+            // location is captured only when there's someone to receive it
+            LocationCapture locationCapture = m_locationCapture;
+            StackTraceElement location = locationCapture != null && locationCapture.matches(name, bundle)
+                    ? LocationCapture.locate(fqcn) : null;
+            entry = new LogEntryImpl(name, bundle, sr, level, message, exception, location);
+        }
+        if (fireEvent) {
             m_logReader.fireEvent(entry);
         }
 
-        if (m_eventAdmin != null) {
+        if (postEvent) {
             m_eventAdmin.postEvent(bundle, level, entry, message, exception, sr, getPaxContext().getContext());
         }
     }
@@ -501,6 +573,13 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
             if (m_log4jContext == null || async != m_async) {
                 m_log4jContext = async ? new AsyncLoggerContext(LOGGER_CONTEXT_NAME) : new LoggerContext(LOGGER_CONTEXT_NAME);
                 m_async = async;
+                // LoggerContext.updateLoggers() (also called by org.apache.logging.log4j.core.config.Configurator
+                // when changing levels) notifies about configuration change
+                m_log4jContext.addPropertyChangeListener(event -> {
+                    if (LoggerContext.PROPERTY_CONFIG.equals(event.getPropertyName())) {
+                        levelsChanged();
+                    }
+                });
             }
 
             ClassLoader old = Thread.currentThread().getContextClassLoader();
@@ -584,6 +663,8 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
             m_log4jContext.updateLoggers();
         } finally {
             unlock(true);
+            m_loggers.clear();
+            levelsChanged();
         }
 
         try {
@@ -601,6 +682,15 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
     }
 
+    /**
+     * Starts new {@link ConfigurationEpoch}, so {@link org.ops4j.pax.logging.PaxLogger} levels cached in
+     * pax-logging-api are calculated again. Levels can't be cached if the configuration has global filter.
+     */
+    private void levelsChanged() {
+        LoggerContext context = m_log4jContext;
+        ConfigurationEpoch.next(context == null || !context.getConfiguration().hasFilter());
+    }
+
     /**
      * Configure Java Util Logging according to the provided configuration.
      * Convert the log4j configuration to JUL config.
@@ -673,6 +763,35 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
                 e.printStackTrace();
             }
         }
+        Object eventsLevel = config.get(PaxLoggingConstants.PID_CFG_LOG_EVENTS_LEVEL);
+        m_eventsLevel = eventsLevel == null ? LogLevel.TRACE
+                : BackendSupport.convertMinimumR7LogLevel(String.valueOf(eventsLevel), LogLevel.TRACE);
+        m_locationCapture = LocationCapture.parse((String) config.get(PaxLoggingConstants.PID_CFG_LOG_EVENTS_LOCATION));
+        if (m_logReader != null) {
+            Object queueSize = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_QUEUE_SIZE);
+            Object overflowPolicy = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_OVERFLOW_POLICY);
+            try {
+                m_logReader.setAsyncDispatch(queueSize == null ? 0 : Integer.parseInt((String) queueSize),
+                        LogReaderServiceImpl.OverflowPolicy.parse((String) overflowPolicy, LogReaderServiceImpl.OverflowPolicy.DROP_OLDEST));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            Object maxBytes = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_MAX_BYTES);
+            try {
+                m_logReader.setMaxBytes(maxBytes == null ? 0L : Long.parseLong((String) maxBytes));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            m_logReader.setCompactExceptions(Boolean.parseBoolean((String) config.get(PaxLoggingConstants.PID_CFG_LOG_READER_COMPACT_EXCEPTIONS)));
+
+            Object historyFile = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_HISTORY_FILE);
+            try {
+                m_logReader.setHistoryFile(historyFile == null ? null : new File((String) historyFile));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     // org.osgi.framework.ServiceFactory
@@ -728,12 +847,12 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
             @Override
             public org.osgi.service.log.Logger getLogger(String name) {
-                return PaxLoggingServiceImpl.this.getLogger(bundle, name, PaxLoggerImpl.FQCN);
+                return PaxLoggingServiceImpl.this.getCachedLogger(bundle, name, PaxLoggerImpl.FQCN, false);
             }
 
             @Override
             public org.osgi.service.log.Logger getLogger(Class<?> clazz) {
-                return PaxLoggingServiceImpl.this.getLogger(bundle, clazz.getName(), PaxLoggerImpl.FQCN);
+                return PaxLoggingServiceImpl.this.getCachedLogger(bundle, clazz.getName(), PaxLoggerImpl.FQCN, false);
             }
 
             @Override
@@ -27,6 +27,7 @@ import org.apache.logging.log4j.core.config.plugins.PluginConfiguration;
 import org.apache.logging.log4j.core.config.plugins.PluginFactory;
 import org.apache.logging.log4j.status.StatusLogger;
 import org.ops4j.pax.logging.log4j2.internal.spi.PaxLoggingEventImpl;
+import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl;
 import org.ops4j.pax.logging.spi.support.PaxAppenderProxy;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -35,22 +36,41 @@ import org.osgi.framework.FrameworkUtil;
 /**
  * This is a Log4J2 appender that forwards log messages to any services registered with OSGi with the interface
  * {@link org.ops4j.pax.logging.spi.PaxAppender}. That list of appender services is possibly filtered by the filter setting.
+ *
+ * With positive {@code queueSize}, appender services are called asynchronously - each from its own thread with
+ * bounded queue of events. {@code overflowPolicy} ({@code drop-oldest}, {@code drop-newest} or {@code block})
+ * specifies what happens when the queue is full.
+ *
+ * Batches of events processed by asynchronous loggers are passed to {@link org.ops4j.pax.logging.spi.PaxBatchAppender}s.
  */
 @Plugin(name = "PaxOsgi", category = "Core", elementType = "appender", printObject = true)
 public class PaxOsgiAppender extends AbstractAppender {
 
+    // compared by name, because LMAX Disruptor (needed by async loggers) is optional
+    private static final String RING_BUFFER_LOG_EVENT = "org.apache.logging.log4j.core.async.RingBufferLogEvent";
+
     private final String filter;
+    private final int queueSize;
+    private final LogReaderServiceImpl.OverflowPolicy overflowPolicy;
     private PaxAppenderProxy proxy;
 
     public PaxOsgiAppender(String name, String filter) {
+        this(name, filter, 0, null);
+    }
+
+    public PaxOsgiAppender(String name, String filter, int queueSize, LogReaderServiceImpl.OverflowPolicy overflowPolicy) {
         super(name, null, null, true, Property.EMPTY_ARRAY);
         this.filter = (filter == null || filter.isEmpty()) ? "*" : filter;
+        this.queueSize = queueSize;
+        this.overflowPolicy = overflowPolicy;
     }
 
     /**
      * Create a Pax Osgi Appender.
      * @param name The name of the Appender.
      * @param filter defaults to "*", can be any string that works as a value in {@link org.osgi.framework.Filter}
+     * @param queueSize size of per-appender queue, defaults to 0 (synchronous calls)
+     * @param overflowPolicy what to do when appender's queue is full, defaults to {@code drop-oldest}
      * @param config The Configuration
      * @return The FileAppender.
      */
@@ -58,13 +78,16 @@ public class PaxOsgiAppender extends AbstractAppender {
     public static PaxOsgiAppender createAppender(
             @PluginAttribute("name") final String name,
             @PluginAttribute("filter") final String filter,
+            @PluginAttribute(value = "queueSize", defaultInt = 0) final int queueSize,
+            @PluginAttribute("overflowPolicy") final String overflowPolicy,
             @PluginConfiguration final Configuration config) {
 
         if (name == null) {
             StatusLogger.getLogger().error("No name provided for PaxOsgiAppender");
             return null;
         }
-        return new PaxOsgiAppender(name, filter);
+        return new PaxOsgiAppender(name, filter, queueSize,
+                LogReaderServiceImpl.OverflowPolicy.parse(overflowPolicy, LogReaderServiceImpl.OverflowPolicy.DROP_OLDEST));
     }
 
     @Override
@@ -77,7 +100,7 @@ public class PaxOsgiAppender extends AbstractAppender {
         if (bundleContext == null) {
             throw new IllegalStateException("Can't determine BundleContext to use for PaxOsgiAppender");
         }
-        proxy = new PaxAppenderProxy(bundleContext, filter);
+        proxy = new PaxAppenderProxy(bundleContext, filter, queueSize, overflowPolicy);
         proxy.open();
         super.start();
     }
@@ -95,7 +118,28 @@ public class PaxOsgiAppender extends AbstractAppender {
     public void append(LogEvent event) {
         PaxAppenderProxy p = proxy;
         if (p != null) {
-            p.doAppend(new PaxLoggingEventImpl(event));
+            // only asynchronous loggers (with events from ring buffer) mark end of batch, other events
+            // are logged synchronously
+            boolean endOfBatch = event.isEndOfBatch() || !RING_BUFFER_LOG_EVENT.equals(event.getClass().getName());
+            p.doAppend(new PaxLoggingEventImpl(event), endOfBatch);
         }
     }
+
+    /**
+     * Number of events waiting in queues of asynchronously called appenders
+     * @return
+     */
+    public long getQueuedCount() {
+        PaxAppenderProxy p = proxy;
+        return p == null ? 0L : p.getQueuedCount();
+    }
+
+    /**
+     * Number of events not passed to asynchronously called appenders because of full queues
+     * @return
+     */
+    public long getDroppedCount() {
+        PaxAppenderProxy p = proxy;
+        return p == null ? 0L : p.getDroppedCount();
+    }
 }
@@ -27,6 +27,8 @@ import org.apache.logging.log4j.core.impl.ThrowableProxy;
 import org.ops4j.pax.logging.spi.PaxLevel;
 import org.ops4j.pax.logging.spi.PaxLocationInfo;
 import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+import org.ops4j.pax.logging.spi.PaxThrowableInfo;
+import org.ops4j.pax.logging.spi.support.PaxThrowableInfoImpl;
 
 public class PaxLoggingEventImpl implements PaxLoggingEvent {
 
@@ -37,6 +39,11 @@ public class PaxLoggingEventImpl implements PaxLoggingEvent {
     }
 
     private final LogEvent event;
+    // calculated on first access, as it may require stack walking
+    private PaxLocationInfo locationInfo;
+    // rendered on first access and shared by all appenders receiving this event
+    private volatile String[] throwableStrRep;
+    private volatile PaxThrowableInfo throwableInfo;
 
     public PaxLoggingEventImpl(LogEvent event) {
         this.event = event;
@@ -44,7 +51,12 @@ public class PaxLoggingEventImpl implements PaxLoggingEvent {
 
     @Override
     public PaxLocationInfo getLocationInformation() {
-        return new PaxLocationInfoImpl(event.getSource());
+        PaxLocationInfo info = locationInfo;
+        if (info == null) {
+            info = new PaxLocationInfoImpl(event.getSource());
+            locationInfo = info;
+        }
+        return info;
     }
 
     @Override
@@ -74,8 +86,26 @@ public class PaxLoggingEventImpl implements PaxLoggingEvent {
 
     @Override
     public String[] getThrowableStrRep() {
-        ThrowableProxy t = event.getThrownProxy();
-        return t != null ? t.getExtendedStackTraceAsString("").split("\n") : null;
+        String[] rep = throwableStrRep;
+        if (rep == null) {
+            ThrowableProxy t = event.getThrownProxy();
+            if (t == null) {
+                return null;
+            }
+            rep = t.getExtendedStackTraceAsString("").split("\n");
+            throwableStrRep = rep;
+        }
+        return rep.clone();
+    }
+
+    @Override
+    public PaxThrowableInfo getThrowableInformation() {
+        PaxThrowableInfo info = throwableInfo;
+        if (info == null) {
+            info = PaxThrowableInfoImpl.of(event.getThrown());
+            throwableInfo = info;
+        }
+        return info;
     }
 
     @Override
@@ -99,4 +129,10 @@ public class PaxLoggingEventImpl implements PaxLoggingEvent {
         return event.getContextData() == null ? Collections.emptyMap() : new HashMap<>(event.getContextData().toMap());
     }
 
+    @Override
+    public PaxLoggingEvent toImmutable() {
+        // wrapped event may be reused by Log4J2 (MutableLogEvent, RingBufferLogEvent)
+        return new PaxLoggingEventSnapshot(event, locationInfo);
+    }
+
 }
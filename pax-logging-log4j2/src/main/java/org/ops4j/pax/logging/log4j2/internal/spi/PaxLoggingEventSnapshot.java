@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.ops4j.pax.logging.log4j2.internal.spi;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.ThrowableProxy;
+import org.apache.logging.log4j.util.ReadOnlyStringMap;
+import org.ops4j.pax.logging.spi.PaxLevel;
+import org.ops4j.pax.logging.spi.PaxLocationInfo;
+import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+import org.ops4j.pax.logging.spi.PaxThrowableInfo;
+import org.ops4j.pax.logging.spi.support.PaxThrowableInfoImpl;
+
+/**
+ * Immutable copy of Log4J2 {@link LogEvent}, which may be a {@code MutableLogEvent} or {@code RingBufferLogEvent}
+ * reused by Log4J2 for next logging call. The message is formatted once, context data is copied to shared
+ * unmodifiable map and the throwable is rendered only when needed.
+ */
+public class PaxLoggingEventSnapshot implements PaxLoggingEvent {
+
+    private final PaxLevel level;
+    private final String loggerName;
+    private final String fqcn;
+    private final String message;
+    private final String threadName;
+    private final long timeStamp;
+    private final boolean includeLocation;
+    private final PaxLocationInfo locationInfo;
+    private final Map<String, Object> properties;
+    private final Throwable thrown;
+    // rendered on first access
+    private volatile String[] throwableStrRep;
+    private volatile PaxThrowableInfo throwableInfo;
+
+    /**
+     * Creates a snapshot of the event.
+     * @param event
+     * @param locationInfo location if it was already calculated, as it can't be calculated later
+     *        (outside of logging thread)
+     */
+    PaxLoggingEventSnapshot(LogEvent event, PaxLocationInfo locationInfo) {
+        level = new PaxLevelImpl(event.getLevel());
+        loggerName = event.getLoggerName();
+        fqcn = event.getLoggerFqcn();
+        message = event.getMessage().getFormattedMessage();
+        threadName = event.getThreadName();
+        timeStamp = event.getTimeMillis();
+        includeLocation = event.isIncludeLocation();
+        this.locationInfo = locationInfo != null ? locationInfo : new PaxLocationInfoImpl(null);
+        ReadOnlyStringMap contextData = event.getContextData();
+        if (contextData == null || contextData.isEmpty()) {
+            properties = Collections.emptyMap();
+        } else {
+            properties = Collections.unmodifiableMap(new HashMap<>(contextData.toMap()));
+        }
+        thrown = event.getThrown();
+    }
+
+    @Override
+    public PaxLocationInfo getLocationInformation() {
+        return locationInfo;
+    }
+
+    @Override
+    public PaxLevel getLevel() {
+        return level;
+    }
+
+    @Override
+    public String getLoggerName() {
+        return loggerName;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String getRenderedMessage() {
+        return message;
+    }
+
+    @Override
+    public String getThreadName() {
+        return threadName;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public String[] getThrowableStrRep() {
+        if (thrown == null) {
+            return null;
+        }
+        String[] rep = throwableStrRep;
+        if (rep == null) {
+            // same extended rendering as PaxLoggingEventImpl, which gets ThrowableProxy from the event
+            rep = new ThrowableProxy(thrown).getExtendedStackTraceAsString("").split("\n");
+            throwableStrRep = rep;
+        }
+        return rep.clone();
+    }
+
+    @Override
+    public PaxThrowableInfo getThrowableInformation() {
+        if (thrown == null) {
+            return null;
+        }
+        PaxThrowableInfo info = throwableInfo;
+        if (info == null) {
+            info = PaxThrowableInfoImpl.of(thrown);
+            throwableInfo = info;
+        }
+        return info;
+    }
+
+    @Override
+    public boolean locationInformationExists() {
+        return includeLocation;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    @Override
+    public String getFQNOfLoggerClass() {
+        return fqcn;
+    }
+
+    /**
+     * Unlike {@link PaxLoggingEventImpl#getProperties()}, returns shared, unmodifiable map.
+     * @return
+     */
+    @Override
+    public Map<String, Object> getProperties() {
+        return properties;
+    }
+
+    @Override
+    public PaxLoggingEvent toImmutable() {
+        return this;
+    }
+
+}
@@ -31,6 +31,7 @@ import org.ops4j.pax.logging.PaxLogger;
 import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.PaxLoggingService;
 import org.ops4j.pax.logging.spi.support.BackendSupport;
+import org.ops4j.pax.logging.spi.support.BundleMetadata;
 import org.ops4j.pax.logging.spi.support.ConfigurationNotifier;
 import org.ops4j.pax.logging.spi.support.DefaultServiceLog;
 import org.ops4j.pax.logging.spi.support.FallbackLogFactory;
@@ -78,6 +79,9 @@ public class Activator implements BundleActivator {
         String levelName = BackendSupport.defaultLogLevel(bundleContext);
         DefaultServiceLog.setLogLevel(levelName);
 
+        // cached bundle.id/bundle.name/bundle.version MDC values of updated/uninstalled bundles have to be removed
+        bundleContext.addBundleListener(BundleMetadata.listener());
+
         // OSGi Compendium 101.4: Log Reader Service
         logReaderInfo = BackendSupport.createAndRegisterLogReaderService(bundleContext);
 
@@ -152,6 +156,9 @@ public class Activator implements BundleActivator {
         m_RegistrationPaxLogging.unregister();
         m_RegistrationPaxLogging = null;
 
+        bundleContext.removeBundleListener(BundleMetadata.listener());
+        BundleMetadata.clear();
+
         // Shutdown Pax Logging to ensure appender file locks get released
         if (m_paxLogging != null) {
             m_paxLogging.shutdown();
@@ -20,6 +20,7 @@ package org.ops4j.pax.logging.logback.internal;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.concurrent.locks.Lock;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
@@ -28,6 +29,7 @@ import org.ops4j.pax.logging.PaxLogger;
 import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.PaxMarker;
 import org.ops4j.pax.logging.slf4j.Slf4jLogger;
+import org.ops4j.pax.logging.spi.support.BundleMetadata;
 import org.ops4j.pax.logging.spi.support.FormattingTriple;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.ServiceReference;
@@ -1153,50 +1155,53 @@ public class PaxLoggerImpl implements PaxLogger {
     private void doLog0(Marker marker, final int level, final String fqcn, final String message,
                         final Throwable t, final ServiceReference<?> ref,
                         final Object... args) {
-        setDelegateContext();
-        try {
-            String[] finalFqcns = new String[1];
-            //noinspection StringEquality - this string is intern()ed
-            if (fqcn == Slf4jLogger.SLF4J_FQCN) {
-                finalFqcns[0] = Slf4jLogger.fcqn.get();
-                if (finalFqcns[0] == null) {
-                    finalFqcns[0] = fqcn;
-                }
-            } else {
+        String[] finalFqcns = new String[1];
+        //noinspection StringEquality - this string is intern()ed
+        if (fqcn == Slf4jLogger.SLF4J_FQCN) {
+            finalFqcns[0] = Slf4jLogger.fcqn.get();
+            if (finalFqcns[0] == null) {
                 finalFqcns[0] = fqcn;
             }
+        } else {
+            finalFqcns[0] = fqcn;
+        }
+        Lock lock = setDelegateContext();
+        try {
             m_delegate.log(marker, finalFqcns[0], level, message, args, t);
         } finally {
-            clearDelegateContext();
+            clearDelegateContext(lock);
         }
         LogLevel l = getLogLevel(level);
-        m_service.handleEvents(getName(), m_bundle, ref, l, message, t);
+        m_service.handleEvents(getName(), finalFqcns[0], m_bundle, ref, l, message, t);
     }
 
-    private void setDelegateContext() {
+    private Lock setDelegateContext() {
         // Logback's MDCConverter pulls in MDC properties through the slf4j's MDC class already. 
         // Therefore there's no need to bridge two MDC implementations, like in the log4j PaxLoggerImpl.
         // See PAXLOGGING-165.
         MDCAdapter adapter = MDC.getMDCAdapter();
         if (m_bundle != null && adapter != null) {
-            adapter.put("bundle.id", String.valueOf(m_bundle.getBundleId()));
-            adapter.put("bundle.name", m_bundle.getSymbolicName());
-            adapter.put("bundle.version", m_bundle.getVersion().toString());
+            BundleMetadata metadata = BundleMetadata.of(m_bundle);
+            adapter.put(BundleMetadata.BUNDLE_ID, metadata.getBundleId());
+            adapter.put(BundleMetadata.BUNDLE_NAME, metadata.getBundleName());
+            adapter.put(BundleMetadata.BUNDLE_VERSION, metadata.getBundleVersion());
         }
         if (adapter != null) {
             // remove this potential value to not pollute MDC
             adapter.remove(PaxLoggingConstants._LOG4J2_MESSAGE);
         }
-        m_service.lock(false);
+        return m_service.lockForEvent();
     }
 
-    private void clearDelegateContext() {
-        m_service.unlock(false);
+    private void clearDelegateContext(Lock lock) {
+        if (lock != null) {
+            lock.unlock();
+        }
         MDCAdapter adapter = MDC.getMDCAdapter();
         if (m_bundle != null && adapter != null) {
-            adapter.remove("bundle.id");
-            adapter.remove("bundle.name");
-            adapter.remove("bundle.version");
+            adapter.remove(BundleMetadata.BUNDLE_ID);
+            adapter.remove(BundleMetadata.BUNDLE_NAME);
+            adapter.remove(BundleMetadata.BUNDLE_VERSION);
         }
 
         // No need to clear the underlying MDC
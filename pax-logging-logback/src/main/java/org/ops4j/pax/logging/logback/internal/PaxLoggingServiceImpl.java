@@ -25,6 +25,7 @@ import java.util.Enumeration;
 import java.util.Locale;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -34,6 +35,7 @@ import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
 import ch.qos.logback.classic.spi.Configurator;
+import ch.qos.logback.classic.spi.LoggerContextListener;
 import ch.qos.logback.classic.spi.LogbackServiceProvider;
 import ch.qos.logback.classic.util.LogbackMDCAdapter;
 import ch.qos.logback.core.CoreConstants;
@@ -42,6 +44,7 @@ import ch.qos.logback.core.status.InfoStatus;
 import ch.qos.logback.core.status.Status;
 import ch.qos.logback.core.status.StatusManager;
 import ch.qos.logback.core.status.WarnStatus;
+import org.ops4j.pax.logging.ConfigurationEpoch;
 import org.ops4j.pax.logging.EventAdminPoster;
 import org.ops4j.pax.logging.PaxContext;
 import org.ops4j.pax.logging.PaxLogger;
@@ -49,9 +52,12 @@ import org.ops4j.pax.logging.PaxLoggingConstants;
 import org.ops4j.pax.logging.PaxLoggingService;
 import org.ops4j.pax.logging.spi.support.BackendSupport;
 import org.ops4j.pax.logging.spi.support.ConfigurationNotifier;
+import org.ops4j.pax.logging.spi.support.LocationCapture;
 import org.ops4j.pax.logging.spi.support.LogEntryImpl;
 import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl;
+import org.ops4j.pax.logging.spi.support.LoggerCache;
 import org.ops4j.pax.logging.spi.support.OsgiUtil;
+import org.ops4j.pax.logging.spi.support.PerThreadReadWriteLock;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceFactory;
@@ -104,9 +110,17 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
     // pax-logging-logback specific PaxContext for all MDC access
     private final PaxContext m_paxContext;
 
+    // loggers used by LogService.log() and R7 getLogger() methods
+    private final LoggerCache<PaxLogger> m_loggers = new LoggerCache<>(this::newCachedLogger);
+
     // optional bridging into Event Admin service
     private final EventAdminPoster m_eventAdmin;
 
+    // minimal level of events passed to m_logReader and m_eventAdmin, null if disabled
+    private volatile LogLevel m_eventsLevel = LogLevel.TRACE;
+    // loggers for which location of events passed to m_logReader and m_eventAdmin is captured, null if disabled
+    private volatile LocationCapture m_locationCapture;
+
     // optional notification mechanism for configuration events
     private final ConfigurationNotifier m_configNotifier;
 
@@ -120,6 +134,9 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
     // if static context is not used, here's the one we use
     private final LoggerContext m_logbackContext;
 
+    // invalidates levels cached in pax-logging-api's loggers
+    private final LoggerContextListener m_levelChangeListener = new LevelChangeListener();
+
     // static configuration file URL when not using Configuration Admin
     private final String m_staticConfigFile;
 
@@ -151,11 +168,11 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
         m_paxContext = new PaxContext();
 
+        // loggers of uninstalled bundles are removed from the cache
+        bundleContext.addBundleListener(m_loggers);
+
         String useLocks = OsgiUtil.systemOrContextProperty(bundleContext, PaxLoggingConstants.LOGGING_CFG_USE_LOCKS);
-        if (!"false".equalsIgnoreCase(useLocks)) {
-            // do not use locks ONLY if the property is "false". Otherwise (or if not set at all), use the locks
-            m_configLock = new ReentrantReadWriteLock();
-        }
+        configureLocks(useLocks);
 
         m_useStaticContext = Boolean.parseBoolean(bundleContext.getProperty(PaxLoggingConstants.LOGGING_CFG_LOGBACK_USE_STATIC_CONTEXT));
         if (m_useStaticContext) {
@@ -182,6 +199,9 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
             m_logbackContext.start();
         }
 
+        // levels may also be changed outside of pax-logging configuration (JMX, scanning of configuration file)
+        m_logbackContext.addListener(m_levelChangeListener);
+
         m_staticConfigFile = OsgiUtil.systemOrContextProperty(bundleContext, PaxLoggingConstants.LOGGING_CFG_LOGBACK_CONFIGURATION_FILE);
     }
 
@@ -192,6 +212,9 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
      */
     public void shutdown() {
         m_logbackContext.removeObject(LOGGER_CONTEXT_BUNDLECONTEXT_KEY);
+        m_logbackContext.removeListener(m_levelChangeListener);
+        m_bundleContext.removeBundleListener(m_loggers);
+        m_loggers.clear();
         if (!m_useStaticContext) {
             m_logbackContext.stop();
         } else {
@@ -204,6 +227,42 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
     }
 
+    /**
+     * Switches locking mode according to {@link PaxLoggingConstants#PID_CFG_USE_LOCKS} value
+     * @param useLocks
+     */
+    private void configureLocks(String useLocks) {
+        if ("false".equalsIgnoreCase(useLocks)) {
+            // do not use locks ONLY if the property is "false"
+            m_configLock = null;
+        } else if (PaxLoggingConstants.USE_LOCKS_OPTIMISTIC.equalsIgnoreCase(useLocks)) {
+            // log operations only flag their own thread, reconfiguration waits for flagged threads
+            if (!(m_configLock instanceof PerThreadReadWriteLock)) {
+                m_configLock = new PerThreadReadWriteLock();
+            }
+        } else {
+            // otherwise (or if not set at all), use the locks
+            if (m_configLock == null || m_configLock instanceof PerThreadReadWriteLock) {
+                m_configLock = new ReentrantReadWriteLock();
+            }
+        }
+    }
+
+    /**
+     * Prepares the configuration for single log operation. In "optimistic" mode, the read lock doesn't write
+     * any state shared with other logging threads, but reconfiguration still waits for the log operation to finish.
+     * @return a lock that has to be unlocked after the log operation or {@code null} if no lock was acquired
+     */
+    Lock lockForEvent() {
+        ReadWriteLock lock = m_configLock;
+        if (lock == null) {
+            return null;
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        return readLock;
+    }
+
     /**
      * Locks the configuration if needed
      * @param useWriteLock whether to use {@link ReadWriteLock#readLock()} ({@code false})
@@ -240,7 +299,8 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     @Override
     public PaxLogger getLogger(Bundle bundle, String category, String fqcn) {
-        return getLogger(bundle, category, fqcn, false);
+        // not cached - TrackingLogger (the main caller) keeps its delegate until the service changes
+        return createLogger(bundle, category, fqcn, false);
     }
 
     @Override
@@ -281,12 +341,12 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     @Override
     public org.osgi.service.log.Logger getLogger(String name) {
-        return getLogger(null, name, PaxLoggerImpl.FQCN);
+        return getCachedLogger(null, name, PaxLoggerImpl.FQCN, false);
     }
 
     @Override
     public org.osgi.service.log.Logger getLogger(Class<?> clazz) {
-        return getLogger(null, clazz.getName(), PaxLoggerImpl.FQCN);
+        return getCachedLogger(null, clazz.getName(), PaxLoggerImpl.FQCN, false);
     }
 
     @Override
@@ -306,15 +366,15 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
     private <L extends org.osgi.service.log.Logger> L getLogger(Bundle bundle, String name, Class<L> loggerType, String fqcn) {
         if (loggerType == org.osgi.service.log.Logger.class) {
-            return loggerType.cast(getLogger(bundle, name, fqcn, false));
+            return loggerType.cast(getCachedLogger(bundle, name, fqcn, false));
         } else if (loggerType == org.osgi.service.log.FormatterLogger.class) {
-            return loggerType.cast(getLogger(bundle, name, fqcn, true));
+            return loggerType.cast(getCachedLogger(bundle, name, fqcn, true));
         }
         throw new IllegalArgumentException("Can't obtain logger with type " + loggerType);
     }
 
     /**
-     * The only method that creates new instance of {@link PaxLoggerImpl}. Used by log() methods from R6 and directly
+     * Returns cached instance of {@link PaxLoggerImpl}. Used by log() methods from R6 and directly
      * by getLogger() methods from R7.
      * @param bundle
      * @param category
@@ -322,7 +382,22 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
      * @param printfFormatting whether to use Slf4J ({@code "{}"} - {@code false}) or printf formatting ({@code "%s"} - {@code true}).
      * @return
      */
-    private PaxLogger getLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+    private PaxLogger getCachedLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+        return m_loggers.getLogger(bundle, category, fqcn, printfFormatting);
+    }
+
+    /**
+     * Creates a logger for {@link LoggerCache}. Loggers with Slf4J formatting are obtained from
+     * {@link #getLogger(Bundle, String, String)}, so it remains the single point of creating them.
+     */
+    private PaxLogger newCachedLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
+        return printfFormatting ? createLogger(bundle, category, fqcn, true) : getLogger(bundle, category, fqcn);
+    }
+
+    /**
+     * The only method that creates new instance of {@link PaxLoggerImpl}.
+     */
+    private PaxLoggerImpl createLogger(Bundle bundle, String category, String fqcn, boolean printfFormatting) {
         Logger logbackLogger;
         if (category == null) {
             logbackLogger = m_logbackContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
@@ -359,14 +434,7 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
 
         Object useLocks = configuration.get(PaxLoggingConstants.PID_CFG_USE_LOCKS);
-        if (!"false".equalsIgnoreCase(String.valueOf(useLocks))) {
-            // do not use locks ONLY if the property is "false". Otherwise (or if not set at all), use the locks
-            if (m_configLock == null) {
-                m_configLock = new ReentrantReadWriteLock();
-            }
-        } else {
-            m_configLock = null;
-        }
+        configureLocks(String.valueOf(useLocks));
 
         Object configfile = configuration.get(PaxLoggingConstants.PID_CFG_LOGBACK_CONFIG_FILE);
 
@@ -394,7 +462,7 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         String category = BackendSupport.category(bundle);
 
         try {
-            PaxLogger logger = getLogger(bundle, category, fqcn);
+            PaxLogger logger = getCachedLogger(bundle, category, fqcn, false);
             if (exception != null) {
                 if (level < LOG_ERROR) {
                     logger.audit(message, exception);
@@ -443,14 +511,26 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         }
     }
 
-    void handleEvents(String name, Bundle bundle, ServiceReference<?> sr, LogLevel level, String message, Throwable exception) {
-        LogEntry entry = m_logReader != null || m_eventAdmin != null
-                ? new LogEntryImpl(name, bundle, sr, level, message, exception) : null;
-        if (m_logReader != null) {
+    void handleEvents(String name, String fqcn, Bundle bundle, ServiceReference<?> sr, LogLevel level, String message, Throwable exception) {
+        LogLevel eventsLevel = m_eventsLevel;
+        if (eventsLevel == null || !eventsLevel.implies(level)) {
+            return;
+        }
+        boolean postEvent = m_eventAdmin != null && m_eventAdmin.hasSubscribers(level);
+        boolean fireEvent = m_logReader != null && m_logReader.hasConsumers();
+        LogEntry entry = null;
+        if (fireEvent || postEvent) {
+            // location is captured only when there's someone to receive it
+            LocationCapture locationCapture = m_locationCapture;
+            StackTraceElement location = locationCapture != null && locationCapture.matches(name, bundle)
+                    ? LocationCapture.locate(fqcn) : null;
+            entry = new LogEntryImpl(name, bundle, sr, level, message, exception, location);
+        }
+        if (fireEvent) {
             m_logReader.fireEvent(entry);
         }
 
-        if (m_eventAdmin != null) {
+        if (postEvent) {
             m_eventAdmin.postEvent(bundle, level, entry, message, exception, sr, getPaxContext().getContext());
         }
     }
@@ -551,6 +631,8 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
             }
         } finally {
             unlock(true);
+            m_loggers.clear();
+            levelsChanged();
         }
 
         setLevelToJavaLogging();
@@ -572,6 +654,14 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         m_logbackContext.getStatusManager().add(this::logLogbackStatus);
     }
 
+    /**
+     * Starts new {@link ConfigurationEpoch}, so {@link PaxLogger} levels cached in pax-logging-api are
+     * calculated again. Levels can't be cached if there are turbo filters configured.
+     */
+    private void levelsChanged() {
+        ConfigurationEpoch.next(m_logbackContext.getTurboFilterList().isEmpty());
+    }
+
     private Level extractLevel(String log4jLevelConfig) {
         String[] config = log4jLevelConfig.split("\\s*,\\s*");
         return Level.toLevel(config[0]);
@@ -615,6 +705,35 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
                 e.printStackTrace();
             }
         }
+        Object eventsLevel = config.get(PaxLoggingConstants.PID_CFG_LOG_EVENTS_LEVEL);
+        m_eventsLevel = eventsLevel == null ? LogLevel.TRACE
+                : BackendSupport.convertMinimumR7LogLevel(String.valueOf(eventsLevel), LogLevel.TRACE);
+        m_locationCapture = LocationCapture.parse((String) config.get(PaxLoggingConstants.PID_CFG_LOG_EVENTS_LOCATION));
+        if (m_logReader != null) {
+            Object queueSize = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_QUEUE_SIZE);
+            Object overflowPolicy = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_OVERFLOW_POLICY);
+            try {
+                m_logReader.setAsyncDispatch(queueSize == null ? 0 : Integer.parseInt((String) queueSize),
+                        LogReaderServiceImpl.OverflowPolicy.parse((String) overflowPolicy, LogReaderServiceImpl.OverflowPolicy.DROP_OLDEST));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            Object maxBytes = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_MAX_BYTES);
+            try {
+                m_logReader.setMaxBytes(maxBytes == null ? 0L : Long.parseLong((String) maxBytes));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            m_logReader.setCompactExceptions(Boolean.parseBoolean((String) config.get(PaxLoggingConstants.PID_CFG_LOG_READER_COMPACT_EXCEPTIONS)));
+
+            Object historyFile = config.get(PaxLoggingConstants.PID_CFG_LOG_READER_HISTORY_FILE);
+            try {
+                m_logReader.setHistoryFile(historyFile == null ? null : new File((String) historyFile));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
@@ -711,12 +830,12 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
 
             @Override
             public org.osgi.service.log.Logger getLogger(String name) {
-                return PaxLoggingServiceImpl.this.getLogger(bundle, name, PaxLoggerImpl.FQCN);
+                return PaxLoggingServiceImpl.this.getCachedLogger(bundle, name, PaxLoggerImpl.FQCN, false);
             }
 
             @Override
             public org.osgi.service.log.Logger getLogger(Class<?> clazz) {
-                return PaxLoggingServiceImpl.this.getLogger(bundle, clazz.getName(), PaxLoggerImpl.FQCN);
+                return PaxLoggingServiceImpl.this.getCachedLogger(bundle, clazz.getName(), PaxLoggerImpl.FQCN, false);
             }
 
             @Override
@@ -743,4 +862,34 @@ public class PaxLoggingServiceImpl implements PaxLoggingService, ServiceFactory<
         // nothing to do...
     }
 
+    /**
+     * {@link LoggerContextListener} that invalidates levels cached by pax-logging-api when logger levels change
+     */
+    private class LevelChangeListener implements LoggerContextListener {
+
+        @Override
+        public boolean isResetResistant() {
+            return true;
+        }
+
+        @Override
+        public void onStart(LoggerContext context) {
+            levelsChanged();
+        }
+
+        @Override
+        public void onReset(LoggerContext context) {
+            levelsChanged();
+        }
+
+        @Override
+        public void onStop(LoggerContext context) {
+        }
+
+        @Override
+        public void onLevelChange(Logger logger, Level level) {
+            levelsChanged();
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import org.ops4j.pax.logging.logback.internal.PaxLoggingServiceImpl;
 import org.ops4j.pax.logging.logback.internal.spi.PaxLoggingEventForLogback;
+import org.ops4j.pax.logging.spi.support.LogReaderServiceImpl;
 import org.ops4j.pax.logging.spi.support.PaxAppenderProxy;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -41,6 +42,10 @@ import org.osgi.framework.FrameworkUtil;
  * The paxname argument is a filter for the bundle property "org.ops4j.pax.logging.appender.name". In this example,
  * the "*" means to accept all delegates.
  *
+ * With positive {@code queueSize}, appender services are called asynchronously - each from its own thread with
+ * bounded queue of events. {@code overflowPolicy} ({@code drop-oldest}, {@code drop-newest} or {@code block})
+ * specifies what happens when the queue is full.
+ *
  * This class is inspired by PaxLoggingConfigurator.parseAppender(), PaxAppenderProxy and AppenderBridgeImpl in the
  * log4j implementation.
  * 
@@ -51,6 +56,8 @@ public class PaxAppenderDelegate extends UnsynchronizedAppenderBase<ILoggingEven
     private final Object lifeCycleLock = new Object();
     private PaxAppenderProxy proxy;
     private String paxname = "*";
+    private int queueSize = 0;
+    private LogReaderServiceImpl.OverflowPolicy overflowPolicy = LogReaderServiceImpl.OverflowPolicy.DROP_OLDEST;
 
     /**
      * Allows filtering on OSGi services on the bundle property "org.ops4j.pax.logging.appender.name"
@@ -62,6 +69,40 @@ public class PaxAppenderDelegate extends UnsynchronizedAppenderBase<ILoggingEven
         this.paxname = paxname;
     }
 
+    /**
+     * Size of per-appender queue used to call appender services asynchronously
+     * @param queueSize defaults to 0 (synchronous calls)
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * What to do when appender's queue is full
+     * @param overflowPolicy {@code drop-oldest} (default), {@code drop-newest} or {@code block}
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = LogReaderServiceImpl.OverflowPolicy.parse(overflowPolicy, LogReaderServiceImpl.OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Number of events waiting in queues of asynchronously called appenders
+     * @return
+     */
+    public long getQueuedCount() {
+        PaxAppenderProxy p = proxy;
+        return p == null ? 0L : p.getQueuedCount();
+    }
+
+    /**
+     * Number of events not passed to asynchronously called appenders because of full queues
+     * @return
+     */
+    public long getDroppedCount() {
+        PaxAppenderProxy p = proxy;
+        return p == null ? 0L : p.getDroppedCount();
+    }
+
     @Override
     public void start() {
         synchronized (lifeCycleLock) {
@@ -80,7 +121,7 @@ public class PaxAppenderDelegate extends UnsynchronizedAppenderBase<ILoggingEven
             }
 
             super.start();
-            proxy = new PaxAppenderProxy(bundleContext, paxname);
+            proxy = new PaxAppenderProxy(bundleContext, paxname, queueSize, overflowPolicy);
             proxy.open();
         }
     }
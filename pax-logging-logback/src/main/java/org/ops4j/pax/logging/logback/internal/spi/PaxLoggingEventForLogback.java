@@ -24,11 +24,14 @@ import java.util.Objects;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
 import ch.qos.logback.classic.spi.ThrowableProxyUtil;
 import ch.qos.logback.core.CoreConstants;
 import org.ops4j.pax.logging.spi.PaxLevel;
 import org.ops4j.pax.logging.spi.PaxLocationInfo;
 import org.ops4j.pax.logging.spi.PaxLoggingEvent;
+import org.ops4j.pax.logging.spi.PaxThrowableInfo;
+import org.ops4j.pax.logging.spi.support.PaxThrowableInfoImpl;
 
 /**
  * A facade to make a Logback event look like a Pax Logging event.
@@ -40,13 +43,23 @@ import org.ops4j.pax.logging.spi.PaxLoggingEvent;
  */
 public class PaxLoggingEventForLogback implements PaxLoggingEvent {
     private final ILoggingEvent event;
+    // calculated on first access, as it may require stack walking
+    private PaxLocationInfo locationInfo;
+    // rendered on first access and shared by all appenders receiving this event
+    private volatile String[] throwableStrRep;
+    private volatile PaxThrowableInfo throwableInfo;
 
     public PaxLoggingEventForLogback(ILoggingEvent event) {
         this.event = event;
     }
 
     public PaxLocationInfo getLocationInformation() {
-        return new PaxLocationInfoForLogback(event.getCallerData());
+        PaxLocationInfo info = locationInfo;
+        if (info == null) {
+            info = new PaxLocationInfoForLogback(event.getCallerData());
+            locationInfo = info;
+        }
+        return info;
     }
 
     public PaxLevel getLevel() {
@@ -70,13 +83,47 @@ public class PaxLoggingEventForLogback implements PaxLoggingEvent {
     }
 
     public String[] getThrowableStrRep() {
-        StringBuilder sb = new StringBuilder();
-        for (IThrowableProxy tp = event.getThrowableProxy(); tp != null; tp = tp.getCause()) {
-            ThrowableProxyUtil.subjoinFirstLine(sb, tp);
-            sb.append(CoreConstants.LINE_SEPARATOR);
-            ThrowableProxyUtil.subjoinSTEPArray(sb, ThrowableProxyUtil.REGULAR_EXCEPTION_INDENT, tp);
+        String[] rep = throwableStrRep;
+        if (rep == null) {
+            StringBuilder sb = new StringBuilder();
+            for (IThrowableProxy tp = event.getThrowableProxy(); tp != null; tp = tp.getCause()) {
+                ThrowableProxyUtil.subjoinFirstLine(sb, tp);
+                sb.append(CoreConstants.LINE_SEPARATOR);
+                ThrowableProxyUtil.subjoinSTEPArray(sb, ThrowableProxyUtil.REGULAR_EXCEPTION_INDENT, tp);
+            }
+            rep = sb.toString().split(CoreConstants.LINE_SEPARATOR);
+            throwableStrRep = rep;
         }
-        return sb.toString().split(CoreConstants.LINE_SEPARATOR);
+        return rep.clone();
+    }
+
+    @Override
+    public PaxThrowableInfo getThrowableInformation() {
+        PaxThrowableInfo info = throwableInfo;
+        if (info == null) {
+            info = of(event.getThrowableProxy());
+            throwableInfo = info;
+        }
+        return info;
+    }
+
+    private static PaxThrowableInfo of(IThrowableProxy proxy) {
+        if (proxy == null) {
+            return null;
+        }
+        StackTraceElementProxy[] steps = proxy.getStackTraceElementProxyArray();
+        StackTraceElement[] trace = new StackTraceElement[steps == null ? 0 : steps.length];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = steps[i].getStackTraceElement();
+        }
+        IThrowableProxy[] suppressedProxies = proxy.getSuppressed();
+        PaxThrowableInfo[] suppressed = new PaxThrowableInfo[suppressedProxies == null ? 0 : suppressedProxies.length];
+        for (int i = 0; i < suppressed.length; i++) {
+            suppressed[i] = of(suppressedProxies[i]);
+        }
+        // cyclic proxies have no frames and no cause, so recursion always ends
+        return new PaxThrowableInfoImpl(proxy.getClassName(), proxy.getMessage(), trace,
+                proxy.getCommonFrames(), of(proxy.getCause()), suppressed);
     }
 
     public boolean locationInformationExists() {
@@ -98,6 +145,13 @@ public class PaxLoggingEventForLogback implements PaxLoggingEvent {
         return new HashMap<>(event.getMDCPropertyMap());
     }
 
+    @Override
+    public PaxLoggingEvent toImmutable() {
+        // Logback doesn't reuse its events, it's enough to format the message and copy MDC in logging thread
+        event.prepareForDeferredProcessing();
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -25,9 +25,13 @@ import ch.qos.logback.classic.spi.LoggingEvent;
 import org.junit.Test;
 import org.ops4j.pax.logging.logback.internal.spi.PaxLevelImpl;
 import org.ops4j.pax.logging.logback.internal.spi.PaxLoggingEventForLogback;
+import org.ops4j.pax.logging.spi.PaxThrowableInfo;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -56,4 +60,35 @@ public class PaxLoggingEventForLogbackTest {
         assertTrue(System.currentTimeMillis() >= event.getTimeStamp());
     }
 
+    @Test
+    public void throwableInformation() {
+        LoggerContext context = new LoggerContext();
+        Logger logger = context.getLogger("mylogger");
+        Exception cause = new IllegalStateException("cause");
+        Exception e = new RuntimeException("failure", cause);
+        e.addSuppressed(new IllegalArgumentException("suppressed"));
+        LoggingEvent levent = new LoggingEvent("myfqcn", logger, Level.ERROR, "error", e, null);
+
+        PaxLoggingEventForLogback event = new PaxLoggingEventForLogback(levent);
+        String[] rep = event.getThrowableStrRep();
+        assertEquals("java.lang.RuntimeException: failure", rep[0]);
+        assertNotSame(rep, event.getThrowableStrRep());
+        assertEquals(rep.length, event.getThrowableStrRep().length);
+
+        PaxThrowableInfo info = event.getThrowableInformation();
+        assertSame(info, event.getThrowableInformation());
+        assertEquals(RuntimeException.class.getName(), info.getClassName());
+        assertEquals("failure", info.getMessage());
+        assertEquals(e.getStackTrace()[0], info.getStackTrace()[0]);
+        assertEquals(0, info.getCommonFrames());
+        assertEquals(IllegalStateException.class.getName(), info.getCause().getClassName());
+        assertTrue(info.getCause().getCommonFrames() > 0);
+        assertNull(info.getCause().getCause());
+        assertEquals(1, info.getSuppressed().length);
+        assertEquals("suppressed", info.getSuppressed()[0].getMessage());
+
+        LoggingEvent noException = new LoggingEvent("myfqcn", logger, Level.INFO, "info", null, null);
+        assertNull(new PaxLoggingEventForLogback(noException).getThrowableInformation());
+    }
+
 }